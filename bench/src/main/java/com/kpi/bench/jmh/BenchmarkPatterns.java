@@ -0,0 +1,84 @@
+package com.kpi.bench.jmh;
+
+import com.kpi.HopfieldNN;
+import com.kpi.Letter;
+import com.kpi.PackedPattern;
+import com.kpi.UpdatePolicy;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Random;
+
+/**
+ * The patterns and networks shared by the benchmarks. Everything is generated from a fixed
+ * seed, so every fork and every run measures the same inputs.
+ */
+final class BenchmarkPatterns {
+    /** The seed of the patterns and the noise. */
+    private static final long SEED = 42;
+
+    private BenchmarkPatterns() {
+    }
+
+    /**
+     * Returns the source of the benchmark patterns and noise.
+     * @return a random generator with the benchmark seed.
+     */
+    static Random random() {
+        return new Random(SEED);
+    }
+
+    /**
+     * Generates random bipolar patterns.
+     *
+     * @param random        The source of the states.
+     * @param size          The amount of states in a pattern.
+     * @param load          The amount of patterns as a fraction of the size.
+     * @return The generated patterns, at least one.
+     */
+    static List<PackedPattern> randomPatterns(Random random, int size, double load) {
+        int patternsNum = Math.max(1, (int) Math.round(load * size));
+        List<PackedPattern> patterns = new ArrayList<>(patternsNum);
+        for (int p = 0; p < patternsNum; p++) {
+            PackedPattern pattern = new PackedPattern(size);
+            for (int i = 0; i < size; i++)
+                pattern.set(i, random.nextBoolean());
+            patterns.add(pattern);
+        }
+        return patterns;
+    }
+
+    /**
+     * Returns a copy of the pattern with the given fraction of states flipped.
+     *
+     * @param random    The source of the noise.
+     * @param pattern   The original pattern.
+     * @param noise     The fraction of states to flip.
+     * @return The noisy copy.
+     */
+    static PackedPattern noisy(Random random, PackedPattern pattern, double noise) {
+        PackedPattern copy = new PackedPattern(pattern);
+        for (int i = 0; i < copy.size(); i++)
+            if (random.nextDouble() < noise)
+                copy.set(i, !copy.get(i));
+
+        return copy;
+    }
+
+    /**
+     * Creates a network of the given size and stores the patterns in it.
+     *
+     * @param size      The number of neurons.
+     * @param patterns  The patterns to be stored.
+     * @param policy    The update policy of the network.
+     * @return The trained network.
+     */
+    static HopfieldNN network(int size, List<PackedPattern> patterns, UpdatePolicy policy) {
+        HopfieldNN hopfieldNN = new HopfieldNN(1, size);
+        hopfieldNN.setUpdatePolicy(policy);
+        for (PackedPattern pattern : patterns)
+            hopfieldNN.addLetter(new Letter(1, size, pattern));
+
+        return hopfieldNN;
+    }
+}
@@ -0,0 +1,86 @@
+package com.kpi.bench.jmh;
+
+import com.kpi.HopfieldNN;
+import com.kpi.PackedPattern;
+import com.kpi.UpdatePolicy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.Random;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The latency of recalling noisy copies of the stored patterns, for every combination of
+ * the number of neurons, the load (stored patterns as a fraction of the neurons), the noise
+ * (fraction of flipped states) and the update policy. Every call recalls the next of a
+ * fixed set of queries; the result is returned to JMH, so the recall cannot be optimized away.
+ * <p>
+ * Run with {@code -prof gc} to get the bytes allocated per recall.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MICROSECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class RecallBenchmark {
+    /** The amount of different queries recalled in turn. */
+    private static final int QUERIES_NUM = 256;
+    /** The maximum amount of iterations of one recall. */
+    private static final int MAX_ITERATIONS = 100;
+
+    /** The number of neurons. */
+    @Param({"256", "1024"})
+    public int size;
+    /** The amount of stored patterns as a fraction of the neurons. */
+    @Param({"0.05", "0.1"})
+    public double load;
+    /** The fraction of states flipped in every query. */
+    @Param({"0.05", "0.1", "0.2"})
+    public double noise;
+    /** The update policy of the network. */
+    @Param({"SYNCHRONOUS", "SEQUENTIAL", "RANDOM"})
+    public UpdatePolicy policy;
+
+    /** The trained network. */
+    private HopfieldNN hopfieldNN;
+    /** The recall queries. */
+    private PackedPattern[] queries;
+    /** The index of the next query. */
+    private int next;
+
+    /**
+     * Trains the network and prepares the queries.
+     */
+    @Setup
+    public void setUp() {
+        Random random = BenchmarkPatterns.random();
+        List<PackedPattern> patterns = BenchmarkPatterns.randomPatterns(random, size, load);
+        hopfieldNN = BenchmarkPatterns.network(size, patterns, policy);
+
+        queries = new PackedPattern[QUERIES_NUM];
+        for (int q = 0; q < QUERIES_NUM; q++)
+            queries[q] = BenchmarkPatterns.noisy(random, patterns.get(q % patterns.size()), noise);
+    }
+
+    /**
+     * Recalls the next query.
+     * @return the recalled pattern, or null.
+     */
+    @Benchmark
+    public PackedPattern recall() {
+        PackedPattern query = queries[next];
+        next = (next + 1) % QUERIES_NUM;
+        return hopfieldNN.predict(query, MAX_ITERATIONS);
+    }
+}
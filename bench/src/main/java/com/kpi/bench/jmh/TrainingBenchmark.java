@@ -0,0 +1,60 @@
+package com.kpi.bench.jmh;
+
+import com.kpi.HopfieldNN;
+import com.kpi.PackedPattern;
+import com.kpi.UpdatePolicy;
+import org.openjdk.jmh.annotations.Benchmark;
+import org.openjdk.jmh.annotations.BenchmarkMode;
+import org.openjdk.jmh.annotations.Fork;
+import org.openjdk.jmh.annotations.Measurement;
+import org.openjdk.jmh.annotations.Mode;
+import org.openjdk.jmh.annotations.OutputTimeUnit;
+import org.openjdk.jmh.annotations.Param;
+import org.openjdk.jmh.annotations.Scope;
+import org.openjdk.jmh.annotations.Setup;
+import org.openjdk.jmh.annotations.State;
+import org.openjdk.jmh.annotations.Warmup;
+
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * The time it takes to create a network and store all patterns in it, for every combination
+ * of the number of neurons and the load (stored patterns as a fraction of the neurons).
+ * <p>
+ * Run with {@code -prof gc} to get the bytes allocated per training.
+ */
+@State(Scope.Benchmark)
+@BenchmarkMode(Mode.AverageTime)
+@OutputTimeUnit(TimeUnit.MILLISECONDS)
+@Warmup(iterations = 5, time = 1)
+@Measurement(iterations = 5, time = 1)
+@Fork(value = 2, jvmArgsAppend = "--add-modules=jdk.incubator.vector")
+public class TrainingBenchmark {
+    /** The number of neurons. */
+    @Param({"256", "1024"})
+    public int size;
+    /** The amount of stored patterns as a fraction of the neurons. */
+    @Param({"0.05", "0.1"})
+    public double load;
+
+    /** The patterns to be stored. */
+    private List<PackedPattern> patterns;
+
+    /**
+     * Generates the patterns.
+     */
+    @Setup
+    public void setUp() {
+        patterns = BenchmarkPatterns.randomPatterns(BenchmarkPatterns.random(), size, load);
+    }
+
+    /**
+     * Trains a new network on all patterns.
+     * @return the trained network.
+     */
+    @Benchmark
+    public HopfieldNN train() {
+        return BenchmarkPatterns.network(size, patterns, UpdatePolicy.SYNCHRONOUS);
+    }
+}
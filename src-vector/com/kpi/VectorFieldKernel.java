@@ -0,0 +1,176 @@
+package com.kpi;
+
+import jdk.incubator.vector.ByteVector;
+import jdk.incubator.vector.FloatVector;
+import jdk.incubator.vector.IntVector;
+import jdk.incubator.vector.ShortVector;
+import jdk.incubator.vector.VectorShape;
+import jdk.incubator.vector.VectorOperators;
+import jdk.incubator.vector.VectorSpecies;
+
+import java.util.Arrays;
+
+/**
+ * The FieldKernel on the vector API (jdk.incubator.vector): every loop works on whole
+ * vectors of the preferred size of the CPU, for example 8 floats with AVX2 or 16 with
+ * AVX-512, and leaves only the tail of a row to the scalar code.
+ * <p>
+ * The counts of a quantized matrix are loaded as narrow vectors with one lane per int
+ * lane and widened to ints before they are multiplied, so the sums never overflow.
+ * <p>
+ * The sign step turns the comparison mask of a vector of fields straight into the bits
+ * of a packed word.
+ * <p>
+ * The lanes keep their own partial sums, which are added together at the end, so a float
+ * field may differ from the one of the scalar kernel by rounding; FieldKernel tells when
+ * this changes a sign.
+ * <p>
+ * The class needs the jdk.incubator.vector module at compile time and at run time
+ * (--add-modules jdk.incubator.vector), so it lives in its own source root, src-vector; the
+ * rest of the project compiles without the module, and without this class or the module
+ * FieldKernels falls back to the scalar kernel.
+ */
+final class VectorFieldKernel implements FieldKernel {
+    /** The preferred vector shape of the CPU. */
+    private static final VectorSpecies<Float> SPECIES = FloatVector.SPECIES_PREFERRED;
+    /** The amount of floats in one vector; it divides 64. */
+    private static final int LANES = SPECIES.length();
+    /** The int vectors with as many lanes as the float ones. */
+    private static final VectorSpecies<Integer> INT_SPECIES = IntVector.SPECIES_PREFERRED;
+    /** The byte vectors with as many lanes as the int ones, at least 64 bits long. */
+    private static final VectorSpecies<Byte> BYTE_SPECIES =
+            VectorSpecies.of(byte.class, VectorShape.forBitSize(Math.max(64, LANES * Byte.SIZE)));
+    /** The short vectors with as many lanes as the int ones, at least 64 bits long. */
+    private static final VectorSpecies<Short> SHORT_SPECIES =
+            VectorSpecies.of(short.class, VectorShape.forBitSize(Math.max(64, LANES * Short.SIZE)));
+
+    /**
+     * Initializes the kernel.
+     *
+     * @throws UnsupportedOperationException if the vectors of the CPU are too short to pay off.
+     */
+    VectorFieldKernel() {
+        if (LANES < 4)
+            throw new UnsupportedOperationException("Vectors of " + LANES + " floats are too short.");
+    }
+
+    @Override
+    public float dot(float[] a, int aOffset, float[] b, int length) {
+        FloatVector sum = FloatVector.zero(SPECIES);
+        int bound = SPECIES.loopBound(length);
+
+        int j = 0;
+        for (; j < bound; j += LANES)
+            sum = FloatVector.fromArray(SPECIES, a, aOffset + j).fma(FloatVector.fromArray(SPECIES, b, j), sum);
+
+        float result = sum.reduceLanes(VectorOperators.ADD);
+        for (; j < length; j++)
+            result += a[aOffset + j] * b[j];
+
+        return result;
+    }
+
+    @Override
+    public int dot(byte[] a, int aOffset, int[] b, int length) {
+        IntVector sum = IntVector.zero(INT_SPECIES);
+        int bound = length - Math.max(BYTE_SPECIES.length(), LANES) + 1;
+
+        int j = 0;
+        for (; j < bound; j += LANES) {
+            IntVector counts = (IntVector) ByteVector.fromArray(BYTE_SPECIES, a, aOffset + j)
+                    .convertShape(VectorOperators.B2I, INT_SPECIES, 0);
+            sum = counts.mul(IntVector.fromArray(INT_SPECIES, b, j)).add(sum);
+        }
+
+        int result = sum.reduceLanes(VectorOperators.ADD);
+        for (; j < length; j++)
+            result += a[aOffset + j] * b[j];
+
+        return result;
+    }
+
+    @Override
+    public int dot(short[] a, int aOffset, int[] b, int length) {
+        IntVector sum = IntVector.zero(INT_SPECIES);
+        int bound = length - Math.max(SHORT_SPECIES.length(), LANES) + 1;
+
+        int j = 0;
+        for (; j < bound; j += LANES) {
+            IntVector counts = (IntVector) ShortVector.fromArray(SHORT_SPECIES, a, aOffset + j)
+                    .convertShape(VectorOperators.S2I, INT_SPECIES, 0);
+            sum = counts.mul(IntVector.fromArray(INT_SPECIES, b, j)).add(sum);
+        }
+
+        int result = sum.reduceLanes(VectorOperators.ADD);
+        for (; j < length; j++)
+            result += a[aOffset + j] * b[j];
+
+        return result;
+    }
+
+    /**
+     * The states are unpacked once into a vector of 1.0f and -1.0f, which costs O(N) against
+     * the O(N^2) of the product: on vector units a multiplication by +-1 in a fused multiply-add
+     * is as cheap as a sign flip, while building lane masks from the packed bits is not. The
+     * states are unpacked into the scratch array, so the product does not allocate.
+     */
+    @Override
+    public void multiplyBipolar(float[] weights, int size, long[] words, float[] scratch, float[] result) {
+        for (int j = 0; j < size; j++)
+            scratch[j] = ((words[j >>> 6] >>> j & 1L) != 0) ? 1.0f : -1.0f;
+
+        for (int i = 0; i < size; i++)
+            result[i] = dot(weights, i * size, scratch, size);
+    }
+
+    @Override
+    public void axpy(float factor, float[] x, int xOffset, float[] y, int yOffset, int length) {
+        FloatVector factors = FloatVector.broadcast(SPECIES, factor);
+        int bound = SPECIES.loopBound(length);
+
+        int j = 0;
+        for (; j < bound; j += LANES) {
+            FloatVector.fromArray(SPECIES, x, xOffset + j)
+                    .fma(factors, FloatVector.fromArray(SPECIES, y, yOffset + j))
+                    .intoArray(y, yOffset + j);
+        }
+        for (; j < length; j++)
+            y[yOffset + j] += factor * x[xOffset + j];
+    }
+
+    @Override
+    public float dotAxpy(float[] a, int aOffset, float[] x, float factor, float[] y, int offset, int length) {
+        FloatVector sum = FloatVector.zero(SPECIES);
+        FloatVector factors = FloatVector.broadcast(SPECIES, factor);
+        int bound = SPECIES.loopBound(length);
+
+        int j = 0;
+        for (; j < bound; j += LANES) {
+            FloatVector weights = FloatVector.fromArray(SPECIES, a, aOffset + j);
+            sum = weights.fma(FloatVector.fromArray(SPECIES, x, offset + j), sum);
+            weights.fma(factors, FloatVector.fromArray(SPECIES, y, offset + j)).intoArray(y, offset + j);
+        }
+
+        float result = sum.reduceLanes(VectorOperators.ADD);
+        for (; j < length; j++) {
+            float weight = a[aOffset + j];
+            result += weight * x[offset + j];
+            y[offset + j] += factor * weight;
+        }
+
+        return result;
+    }
+
+    @Override
+    public void sign(float[] fields, long[] words, int length) {
+        Arrays.fill(words, 0L);
+        int bound = SPECIES.loopBound(length);
+
+        int j = 0;
+        for (; j < bound; j += LANES) {
+            long bits = FloatVector.fromArray(SPECIES, fields, j).compare(VectorOperators.GE, 0.0f).toLong();
+            words[j >>> 6] |= bits << (j & 63);
+        }
+        ScalarFieldKernel.sign(fields, words, j, length);
+    }
+}
@@ -0,0 +1,53 @@
+package com.kpi;
+
+/**
+ * An associative memory of letters: it stores letters of fixed dimensions and recalls the
+ * stored letter closest to a distorted input. Implementations differ in how the letters
+ * are stored and how the recall works.
+ */
+public interface AssociativeMemory {
+    /**
+     * Returns the amount of rows in the letters the memory works with.
+     * @return the amount of rows in the letters the memory works with.
+     */
+    int getRowsNum();
+
+    /**
+     * Returns the amount of columns in the letters the memory works with.
+     * @return the amount of columns in the letters the memory works with.
+     */
+    int getColsNum();
+
+    /**
+     * Stores the letter in the memory. A letter that is already stored is ignored.
+     *
+     * @param letter    A <strong>letter</strong> to be stored.
+     */
+    void addLetter(Letter letter);
+
+    /**
+     * Removes the letter from the memory. A letter that is not stored is ignored.
+     *
+     * @param letter    A <strong>letter</strong> to be removed.
+     */
+    void removeLetter(Letter letter);
+
+    /**
+     * Recalls the stored letter that matches the input letter.
+     *
+     * @param inputLetter   The letter that needs to be predicted.
+     * @return the predicted stored letter, or null if the recall did not reach a stored
+     * letter within 100 iterations.
+     */
+    Letter predict(Letter inputLetter);
+
+    /**
+     * Recalls the stored pattern that matches the packed input pattern.
+     *
+     * @param inputPattern  The packed pattern that needs to be predicted.
+     * @param maxIterations The maximum number of iterations of the recall.
+     * @return the packed stored pattern the input converged to, or null if no stored
+     * pattern was reached within the specified number of iterations.
+     */
+    PackedPattern predict(PackedPattern inputPattern, int maxIterations);
+}
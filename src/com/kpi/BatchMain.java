@@ -0,0 +1,148 @@
+package com.kpi;
+
+import com.kpi.batch.BatchPipeline;
+import com.kpi.batch.BatchRecord;
+import com.kpi.batch.FileSource;
+import com.kpi.batch.PackedResultSink;
+import com.kpi.batch.ResultSink;
+import com.kpi.batch.TextGridSource;
+import com.kpi.batch.TextResultSink;
+
+import java.io.BufferedOutputStream;
+import java.io.BufferedWriter;
+import java.io.FilterOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.OutputStreamWriter;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * The headless entry point: recognizes letters from files without the GUI.
+ * <p>
+ * Usage: {@code BatchMain (--model model.hnn | --library letters.txt [--rows R --cols C])
+ * [--workers N] [--queue N] [--prefilter R] [--output file] [--format text|packed] input...}
+ * <p>
+ * The network is either loaded from a model file or trained on the letters of a text
+ * grid file. Inputs are files or directories read by FileSource; results are written
+ * to the output file or to the standard output. With --prefilter, inputs within the given
+ * Hamming distance of exactly one nearest stored letter are answered without running the network.
+ */
+public class BatchMain {
+
+    /**
+     * Parses the options, prepares the model and runs the pipeline over the inputs.
+     *
+     * @param args  The options and inputs, see the class description.
+     * @throws IOException if an input cannot be read or the output cannot be written.
+     * @throws InterruptedException if the main thread is interrupted.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        Path modelPath = null;
+        Path libraryPath = null;
+        int rows = Letter.DEFAULT_ROWS;
+        int cols = Letter.DEFAULT_COLUMNS;
+        int workersNum = Runtime.getRuntime().availableProcessors();
+        int queueCapacity = 1024;
+        int prefilterRadius = -1;
+        Path outputPath = null;
+        String format = "text";
+        List<Path> inputs = new ArrayList<>();
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--model":
+                    modelPath = Paths.get(args[++i]);
+                    break;
+                case "--library":
+                    libraryPath = Paths.get(args[++i]);
+                    break;
+                case "--rows":
+                    rows = Integer.parseInt(args[++i]);
+                    break;
+                case "--cols":
+                    cols = Integer.parseInt(args[++i]);
+                    break;
+                case "--workers":
+                    workersNum = Integer.parseInt(args[++i]);
+                    break;
+                case "--queue":
+                    queueCapacity = Integer.parseInt(args[++i]);
+                    break;
+                case "--prefilter":
+                    prefilterRadius = Integer.parseInt(args[++i]);
+                    break;
+                case "--output":
+                    outputPath = Paths.get(args[++i]);
+                    break;
+                case "--format":
+                    format = args[++i];
+                    break;
+                default:
+                    inputs.add(Paths.get(args[i]));
+            }
+        }
+
+        if ((modelPath == null) == (libraryPath == null) || inputs.isEmpty()) {
+            System.err.println("Usage: BatchMain (--model model.hnn | --library letters.txt [--rows R --cols C])"
+                    + " [--workers N] [--queue N] [--prefilter R] [--output file] [--format text|packed] input...");
+            System.exit(2);
+        }
+
+        TrainedModel model = (modelPath != null) ? ModelFile.load(modelPath) : train(libraryPath, rows, cols);
+        if (prefilterRadius >= 0)
+            model = model.withPrefilterRadius(prefilterRadius);
+        BatchPipeline pipeline = new BatchPipeline(model, workersNum, queueCapacity);
+
+        OutputStream output = (outputPath != null) ? Files.newOutputStream(outputPath) : standardOutput();
+        ResultSink sink = format.equals("packed")
+                ? new PackedResultSink(new BufferedOutputStream(output), model.size())
+                : new TextResultSink(new BufferedWriter(new OutputStreamWriter(output)));
+
+        try (FileSource source = new FileSource(inputs, model.getRowsNum(), model.getColsNum()); ResultSink s = sink) {
+            long count = pipeline.run(source, s);
+            System.err.println(count + " letters processed.");
+        }
+    }
+
+    /**
+     * Returns the standard output as a stream that is flushed but not closed when the sink is
+     * closed, so System.out stays usable after the batch.
+     * @return the standard output.
+     */
+    private static OutputStream standardOutput() {
+        return new FilterOutputStream(System.out) {
+            @Override
+            public void write(byte[] b, int off, int len) throws IOException {
+                out.write(b, off, len);
+            }
+
+            @Override
+            public void close() throws IOException {
+                flush();
+            }
+        };
+    }
+
+    /**
+     * Trains a network on the letters of a text grid file.
+     *
+     * @param path  The <strong>path</strong> of the file.
+     * @param rows  The amount of <strong>rows</strong> in the letters.
+     * @param cols  The amount of <strong>columns</strong> in the letters.
+     * @return The trained model.
+     * @throws IOException if the file cannot be read.
+     */
+    private static TrainedModel train(Path path, int rows, int cols) throws IOException {
+        HopfieldNN hopfieldNN = new HopfieldNN(rows, cols);
+        try (TextGridSource source = new TextGridSource(Files.newBufferedReader(path), rows, cols, path.toString(), 0)) {
+            BatchRecord record;
+            while ((record = source.next()) != null)
+                hopfieldNN.addLetter(record.getInputLetter());
+        }
+        return hopfieldNN.snapshot();
+    }
+}
@@ -0,0 +1,103 @@
+package com.kpi;
+
+/**
+ * The inner loops of the local field calculation h = W * x and of the sign step, on
+ * contiguous rows of a weight matrix. Implementations differ in how they use the CPU:
+ * FieldKernels picks the fastest one available when the class is loaded.
+ * <p>
+ * The float sums of different kernels are equal only up to rounding: they add the same
+ * products in a different order, with or without fused multiply-adds. A local field that is
+ * 0 in exact arithmetic may therefore come out as a tiny positive value in one kernel and a
+ * tiny negative one in another, and its neuron may take a different sign. This only happens
+ * when the weights are not exact in binary, such as the Hebbian 1 / N steps; fields that
+ * add up to 0 exactly are 0 in every kernel and become 1. The int sums are exact in every
+ * kernel, so QuantizedWeightMatrix recalls the same way whatever kernel is used.
+ */
+interface FieldKernel {
+    /**
+     * Calculates the dot product of a part of <strong>a</strong> and the beginning of <strong>b</strong>.
+     *
+     * @param a         The first array, usually the weight matrix.
+     * @param aOffset   The position of the first element of a.
+     * @param b         The second array, usually the state vector.
+     * @param length    The amount of products.
+     * @return the dot product.
+     */
+    float dot(float[] a, int aOffset, float[] b, int length);
+
+    /**
+     * Calculates the dot product of a part of the byte counts <strong>a</strong> and the
+     * beginning of <strong>b</strong>, accumulated as an int.
+     *
+     * @param a         The counts, usually a quantized weight matrix.
+     * @param aOffset   The position of the first element of a.
+     * @param b         The second array, usually the state vector of 1 and -1.
+     * @param length    The amount of products.
+     * @return the dot product.
+     */
+    int dot(byte[] a, int aOffset, int[] b, int length);
+
+    /**
+     * Calculates the dot product of a part of the short counts <strong>a</strong> and the
+     * beginning of <strong>b</strong>, accumulated as an int.
+     *
+     * @param a         The counts, usually a quantized weight matrix.
+     * @param aOffset   The position of the first element of a.
+     * @param b         The second array, usually the state vector of 1 and -1.
+     * @param length    The amount of products.
+     * @return the dot product.
+     */
+    int dot(short[] a, int aOffset, int[] b, int length);
+
+    /**
+     * Multiplies a square row-major weight matrix by a packed bipolar state and writes the
+     * local fields into the <strong>result</strong> array.
+     *
+     * @param weights   The weight matrix in row-major order.
+     * @param size      The amount of rows (and columns) in the matrix.
+     * @param words     The packed states: bit b of word w is the state 64*w + b.
+     * @param scratch   An array of at least size elements the kernel may overwrite, for example with the unpacked states.
+     * @param result    The array the local fields are written to.
+     */
+    void multiplyBipolar(float[] weights, int size, long[] words, float[] scratch, float[] result);
+
+    /**
+     * Adds a part of <strong>x</strong>, multiplied by the <strong>factor</strong>, to a part of <strong>y</strong>.
+     *
+     * @param factor    The scalar value every element of x is multiplied by.
+     * @param x         The array that is added.
+     * @param xOffset   The position of the first element of x.
+     * @param y         The array that is added to.
+     * @param yOffset   The position of the first element of y.
+     * @param length    The amount of elements.
+     */
+    void axpy(float factor, float[] x, int xOffset, float[] y, int yOffset, int length);
+
+    /**
+     * Calculates the dot product of a part of <strong>a</strong> and the same part of <strong>x</strong>
+     * and adds the part of a, multiplied by the <strong>factor</strong>, to the same part of
+     * <strong>y</strong>, reading every element of a only once. This is one row of a symmetric
+     * matrix stored as its upper triangle: the dot product is the field of the row neuron, and
+     * the added elements are its contributions to the fields of the column neurons.
+     *
+     * @param a         The first array, usually the triangle of a weight matrix.
+     * @param aOffset   The position of the first element of a.
+     * @param x         The state vector.
+     * @param factor    The scalar value every element of a is multiplied by, usually the state of the row.
+     * @param y         The array that is added to, usually the local fields.
+     * @param offset    The position of the first element of x and y.
+     * @param length    The amount of elements.
+     * @return the dot product.
+     */
+    float dotAxpy(float[] a, int aOffset, float[] x, float factor, float[] y, int offset, int length);
+
+    /**
+     * Packs the signs of the local fields: a field greater than or equal to 0 becomes 1,
+     * a negative one becomes -1.
+     *
+     * @param fields    The local fields.
+     * @param words     The packed states the signs are written to.
+     * @param length    The amount of fields.
+     */
+    void sign(float[] fields, long[] words, int length);
+}
@@ -0,0 +1,31 @@
+package com.kpi;
+
+/**
+ * Picks the FieldKernel once, when the class is loaded: the vector API kernel if it was
+ * compiled (from src-vector), the jdk.incubator.vector module is present and the kernel
+ * suits the CPU, otherwise the scalar one.
+ * Setting the system property hopfield.vector to false forces the scalar kernel.
+ */
+final class FieldKernels {
+    /** The kernel used by all weight matrices. */
+    static final FieldKernel KERNEL = select();
+
+    private FieldKernels() {
+    }
+
+    /**
+     * Selects the kernel.
+     * @return the fastest available kernel.
+     */
+    private static FieldKernel select() {
+        if (!Boolean.parseBoolean(System.getProperty("hopfield.vector", "true")))
+            return new ScalarFieldKernel();
+
+        try {
+            // Loaded by name, so a missing module only fails here instead of in every class that uses the kernel.
+            return (FieldKernel) Class.forName("com.kpi.VectorFieldKernel").getDeclaredConstructor().newInstance();
+        } catch (ReflectiveOperationException | LinkageError e) {
+            return new ScalarFieldKernel();
+        }
+    }
+}
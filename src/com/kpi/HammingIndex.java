@@ -0,0 +1,165 @@
+package com.kpi;
+
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+
+/**
+ * A HammingIndex object.
+ * An index of packed patterns that finds the pattern nearest to a query within a fixed
+ * Hamming radius r without comparing the query with every pattern (multi-index hashing).
+ * <p>
+ * The states are split into r + 1 consecutive chunks and every pattern is filed under the
+ * bits of each of its chunks. Two patterns at a distance of at most r differ in at most r
+ * chunks, so they are equal in at least one: looking up the r + 1 chunks of the query finds
+ * every pattern within the radius, and only those candidates are compared in full. Chunks
+ * are keyed by a hash of their bits; a hash collision only adds a candidate.
+ * <p>
+ * A radius of at least the size of the patterns covers every pattern, including ones that
+ * differ in all states and so share no chunk with the query; such an index keeps a plain
+ * list and compares the query with every pattern.
+ * <p>
+ * The index is not synchronized; it may be read by many threads while nobody modifies it.
+ */
+final class HammingIndex {
+    /** The amount of states in the patterns. */
+    private final int size;
+    /** The largest distance at which a pattern is found. */
+    private final int radius;
+    /** The first state of every chunk, and the size of the patterns at the end. */
+    private final int[] chunkStarts;
+    /** The patterns filed under the hashes of each chunk, one table per chunk. */
+    private final List<HashMap<Long, List<PackedPattern>>> tables;
+    /** All patterns if the radius covers the whole size and they are scanned linearly, or null. */
+    private final List<PackedPattern> patterns;
+
+    /**
+     * Initializes an empty index.
+     *
+     * @param size      The amount of states in the patterns.
+     * @param radius    The largest distance at which a pattern is found. Must not be negative.
+     */
+    HammingIndex(int size, int radius) {
+        if (radius < 0)
+            throw new IllegalArgumentException("Radius must not be negative instead of " + radius);
+
+        this.size = size;
+        this.radius = radius;
+
+        // Chunks only work below the size: patterns at a distance of size share no chunk.
+        patterns = (radius >= size) ? new ArrayList<>() : null;
+        int chunksNum = (patterns != null) ? 0 : radius + 1;
+        chunkStarts = new int[chunksNum + 1];
+        for (int c = 1; c <= chunksNum; c++)
+            chunkStarts[c] = (int) ((long) c * size / chunksNum);
+
+        tables = new ArrayList<>(chunksNum);
+        for (int c = 0; c < chunksNum; c++)
+            tables.add(new HashMap<>());
+    }
+
+    /**
+     * Returns the largest distance at which a pattern is found.
+     * @return the radius of the index.
+     */
+    int getRadius() {
+        return radius;
+    }
+
+    /**
+     * Adds the pattern to the index.
+     *
+     * @param pattern   The <strong>pattern</strong> to be added. It must not be modified afterwards.
+     */
+    void add(PackedPattern pattern) {
+        if (patterns != null)
+            patterns.add(pattern);
+        for (int c = 0; c < tables.size(); c++)
+            tables.get(c).computeIfAbsent(chunkKey(pattern, c), key -> new ArrayList<>(1)).add(pattern);
+    }
+
+    /**
+     * Removes the pattern from the index.
+     *
+     * @param pattern   The <strong>pattern</strong> to be removed.
+     */
+    void remove(PackedPattern pattern) {
+        if (patterns != null)
+            patterns.remove(pattern);
+        for (int c = 0; c < tables.size(); c++) {
+            Long key = chunkKey(pattern, c);
+            List<PackedPattern> patterns = tables.get(c).get(key);
+            if (patterns != null) {
+                patterns.remove(pattern);
+                if (patterns.isEmpty())
+                    tables.get(c).remove(key);
+            }
+        }
+    }
+
+    /**
+     * Removes all patterns from the index.
+     */
+    void clear() {
+        if (patterns != null)
+            patterns.clear();
+        for (HashMap<Long, List<PackedPattern>> table : tables)
+            table.clear();
+    }
+
+    /**
+     * Finds the pattern nearest to the query if it is within the radius and no other
+     * pattern is at the same distance.
+     *
+     * @param query The packed <strong>query</strong>.
+     * @return the only nearest pattern within the radius, or null if there is none or it is ambiguous.
+     */
+    PackedPattern nearest(PackedPattern query) {
+        if (query.size() != size)
+            throw new IllegalArgumentException("Size of pattern must be " + size + " instead of " + query.size());
+
+        PackedPattern nearest = null;
+        int distance = radius + 1;
+        boolean ambiguous = false;
+
+        int listsNum = (patterns != null) ? 1 : tables.size();
+        for (int c = 0; c < listsNum; c++) {
+            List<PackedPattern> candidates = (patterns != null) ? patterns : tables.get(c).get(chunkKey(query, c));
+            if (candidates == null)
+                continue;
+
+            for (PackedPattern candidate : candidates) {
+                int candidateDistance = query.hammingDistance(candidate);
+                if (candidateDistance < distance) {
+                    nearest = candidate;
+                    distance = candidateDistance;
+                    ambiguous = false;
+                } else if (candidateDistance == distance && !candidate.equals(nearest)) {
+                    ambiguous = true;
+                }
+            }
+        }
+        return ambiguous ? null : nearest;
+    }
+
+    /**
+     * Hashes the bits of one chunk of the pattern, word by word.
+     *
+     * @param pattern   The pattern.
+     * @param chunk     The index of the chunk.
+     * @return the hash of the chunk.
+     */
+    private long chunkKey(PackedPattern pattern, int chunk) {
+        int from = chunkStarts[chunk];
+        int to = chunkStarts[chunk + 1];
+
+        long hash = 0;
+        for (int w = from / Long.SIZE; w <= (to - 1) / Long.SIZE; w++) {
+            int low = Math.max(from - w * Long.SIZE, 0);
+            int high = Math.min(to - w * Long.SIZE, Long.SIZE);
+            long mask = (high == Long.SIZE ? -1L : (1L << high) - 1) & (-1L << low);
+            hash = hash * 0x9E3779B97F4A7C15L + (pattern.getWord(w) & mask);
+        }
+        return hash;
+    }
+}
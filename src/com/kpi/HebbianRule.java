@@ -0,0 +1,26 @@
+package com.kpi;
+
+/**
+ * The Hebbian learning rule: the weights are the sum of the outer products of the stored
+ * patterns, normalized by the number of neurons, with a zero diagonal.
+ * <p>
+ * Every pattern is added or removed with one rank-1 update and the rule keeps no state.
+ * A network with N neurons recalls about 0.14 * N random patterns reliably.
+ */
+public class HebbianRule implements LearningRule {
+    @Override
+    public void reset(WeightStore weights) {
+        weights.clear();
+    }
+
+    @Override
+    public void learn(WeightStore weights, PackedPattern pattern) {
+        weights.addOuterProduct(pattern, 1.0f/weights.size());
+    }
+
+    @Override
+    public boolean unlearn(WeightStore weights, PackedPattern pattern) {
+        weights.addOuterProduct(pattern, -1.0f/weights.size());
+        return true;
+    }
+}
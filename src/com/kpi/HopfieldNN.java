@@ -1,62 +1,309 @@
 package com.kpi;
 
 import java.util.ArrayList;
-import java.util.Arrays;
-import java.util.HashSet;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Random;
 
 /**
  *
  */
-public class HopfieldNN {
-    /** The constant number of neurons in the network, set to 25. */
-    private static final int NEURON_NUM = 25;
+public class HopfieldNN implements AssociativeMemory {
+    /** The amount of <strong>rows</strong> in the letters the network works with. */
+    private final int rows;
+    /** The amount of <strong>columns</strong> in the letters the network works with. */
+    private final int cols;
     /**  An instance of the Library class that contains the set of stored letters for training and recognition. */
     private Library library;
     /** A matrix representing the weights between neurons, used to store the learned associations of the network. */
-    private ArrayList<ArrayList<Float>> weights;
+    private WeightStore weights;
+    /** An index of the packed stored letters, used to check in one probe whether recall landed on a stored pattern. */
+    private HashMap<PackedPattern, Letter> attractors;
+    /** The order in which neurons are updated during recall. */
+    private UpdatePolicy updatePolicy;
+    /** The source of the neuron permutations for the random update policy. */
+    private Random random;
+    /** The rule that turns the stored letters into the weights. */
+    private LearningRule learningRule;
+    /** The listener of the recall progress, or null. */
+    private RecallListener recallListener;
+    /** The Hamming index of the stored patterns checked before the recall, or null if it is disabled. */
+    private HammingIndex prefilter;
+    /** The cache of the recall results, or null. */
+    private RecallCache recallCache;
+    /** The engine that runs the recall over the weights and the attractor index. */
+    private RecallEngine engine;
 
     /**
-     * Initializes the Hopfield network by creating an empty library and a weight matrix
-     * with all elements set to 0.0f.
+     * Initializes the Hopfield network for 5x5 letters (25 neurons) by creating an empty
+     * library and a weight matrix with all elements set to 0.0f.
      */
     public HopfieldNN() {
+        this(Letter.DEFAULT_ROWS, Letter.DEFAULT_COLUMNS);
+    }
+
+    /**
+     * Initializes the Hopfield network for letters of the given dimensions, with one neuron
+     * per letter cell, by creating an empty library and a weight matrix with all elements set to 0.0f.
+     *
+     * @param rows  The amount of <strong>rows</strong> in the letters.
+     * @param cols  The amount of <strong>columns</strong> in the letters.
+     */
+    public HopfieldNN(int rows, int cols) {
+        this(rows, cols, new WeightMatrix(rows * cols));
+    }
+
+    /**
+     * Initializes the Hopfield network for letters of the given dimensions over the given
+     * weight store, for example a SparseWeightMatrix for a diluted network. The store must
+     * connect one neuron per letter cell and is expected to hold zero weights.
+     *
+     * @param rows      The amount of <strong>rows</strong> in the letters.
+     * @param cols      The amount of <strong>columns</strong> in the letters.
+     * @param weights   The store of the <strong>weights</strong> between neurons.
+     */
+    public HopfieldNN(int rows, int cols, WeightStore weights) {
+        this(rows, cols, weights, new HebbianRule());
+    }
+
+    /**
+     * Initializes the Hopfield network for letters of the given dimensions over the given
+     * weight store, trained with the given learning rule. The store is cleared by the rule.
+     *
+     * @param rows          The amount of <strong>rows</strong> in the letters.
+     * @param cols          The amount of <strong>columns</strong> in the letters.
+     * @param weights       The store of the <strong>weights</strong> between neurons.
+     * @param learningRule  The <strong>learning rule</strong>; it must not be used by another network.
+     * @throws IllegalArgumentException if the learning rule does not support the weight store.
+     */
+    public HopfieldNN(int rows, int cols, WeightStore weights, LearningRule learningRule) {
+        if (learningRule == null)
+            throw new NullPointerException("The learning rule is null.");
+        if (rows <= 0 || cols <= 0)
+            throw new IllegalArgumentException("Letter dimensions must be positive instead of " + rows + "x" + cols);
+        if (weights.size() != rows * cols)
+            throw new IllegalArgumentException("Size of weight store must be " + rows * cols + " instead of " + weights.size());
+        checkSupport(learningRule, weights);
+
+        this.rows = rows;
+        this.cols = cols;
+        this.weights = weights;
+        this.learningRule = learningRule;
+        learningRule.reset(weights);
+
         library = new Library();
+        attractors = new HashMap<>();
+        updatePolicy = UpdatePolicy.SYNCHRONOUS;
+        random = new Random();
+        engine = new RecallEngine(weights, attractors);
+    }
 
-        Float[] weightsArr = new Float[NEURON_NUM];
-        Arrays.fill(weightsArr, 0.0f);
+    /**
+     * Returns the amount of rows in the letters the network works with.
+     * @return the amount of rows in the letters the network works with.
+     */
+    @Override
+    public int getRowsNum() {
+        return rows;
+    }
+
+    /**
+     * Returns the amount of columns in the letters the network works with.
+     * @return the amount of columns in the letters the network works with.
+     */
+    @Override
+    public int getColsNum() {
+        return cols;
+    }
+
+    /**
+     * Returns the order in which neurons are updated during recall.
+     * @return the order in which neurons are updated during recall.
+     */
+    public UpdatePolicy getUpdatePolicy() {
+        return updatePolicy;
+    }
+
+    /**
+     * Sets the order in which neurons are updated during recall.
+     *
+     * @param updatePolicy  The new <strong>update policy</strong>.
+     */
+    public void setUpdatePolicy(UpdatePolicy updatePolicy) {
+        if (updatePolicy == null)
+            throw new NullPointerException("The update policy is null.");
+
+        this.updatePolicy = updatePolicy;
+        invalidateCache();
+    }
 
-        weights = new ArrayList<>();
-        for (int i = 0; i < NEURON_NUM; i++) {
-            weights.add(new ArrayList<>(Arrays.asList(weightsArr)));
+    /**
+     * Returns the listener of the recall progress.
+     * @return the listener of the recall progress, or null if there is none.
+     */
+    public RecallListener getRecallListener() {
+        return recallListener;
+    }
+
+    /**
+     * Sets the listener of the recall progress. It is passed on to the snapshots taken afterwards.
+     *
+     * @param recallListener    The new <strong>listener</strong>, or null to remove it.
+     */
+    public void setRecallListener(RecallListener recallListener) {
+        this.recallListener = recallListener;
+    }
+
+    /**
+     * Returns the radius of the nearest-pattern pre-filter.
+     * @return the radius of the pre-filter, or -1 if it is disabled.
+     */
+    public int getPrefilterRadius() {
+        return (prefilter == null) ? -1 : prefilter.getRadius();
+    }
+
+    /**
+     * Sets the radius of the nearest-pattern pre-filter. When it is enabled, an input that has
+     * exactly one nearest stored letter within the given Hamming distance is answered with that
+     * letter at once, and only the other inputs run through the network. As lightly distorted
+     * inputs are the most common ones, this skips the O(N^2) iterations for most of them. The
+     * stored patterns are indexed by multi-index hashing, so the check does not compare the
+     * input with every stored letter.
+     *
+     * @param radius    The largest Hamming distance answered by the pre-filter, or a negative value to disable it.
+     */
+    public void setPrefilterRadius(int radius) {
+        if (radius < 0) {
+            prefilter = null;
+        } else {
+            prefilter = new HammingIndex(rows * cols, radius);
+            for (PackedPattern pattern : attractors.keySet())
+                prefilter.add(pattern);
         }
+        invalidateCache();
+        rebuildEngine();
     }
 
     /**
-     * Adds a Letter object to the network's library.
+     * Returns the cache of the recall results.
+     * @return the cache of the recall results, or null if there is none.
+     */
+    public RecallCache getRecallCache() {
+        return recallCache;
+    }
+
+    /**
+     * Sets the cache of the recall results. An input pattern recalled before is then answered
+     * from the cache with one hash lookup. The cache is invalidated whenever the stored letters,
+     * the learning rule, the update policy or the pre-filter change. With the random update
+     * policy the first result of an input is repeated for as long as it stays cached. The cache
+     * is not passed on to the snapshots.
+     *
+     * @param recallCache   The new <strong>cache</strong>, or null to recall every input.
+     */
+    public void setRecallCache(RecallCache recallCache) {
+        this.recallCache = recallCache;
+        if (recallCache != null)
+            recallCache.invalidate();
+        rebuildEngine();
+    }
+
+    /**
+     * Returns the rule that turns the stored letters into the weights.
+     * @return the rule that turns the stored letters into the weights.
+     */
+    public LearningRule getLearningRule() {
+        return learningRule;
+    }
+
+    /**
+     * Sets the rule that turns the stored letters into the weights and retrains the network with it.
+     *
+     * @param learningRule  The new <strong>learning rule</strong>; it must not be used by another network.
+     * @throws IllegalArgumentException if the learning rule does not support the weight store.
+     */
+    public void setLearningRule(LearningRule learningRule) {
+        if (learningRule == null)
+            throw new NullPointerException("The learning rule is null.");
+        checkSupport(learningRule, weights);
+
+        this.learningRule = learningRule;
+        train();
+    }
+
+    /**
+     * Adds a Letter object to the network's library and updates the weight matrix with the
+     * learning rule (for the default Hebbian rule, a rank-1 update with its outer product),
+     * so the network stays trained without recomputing the whole matrix. The diagonal
+     * elements are left at 0. The packed letter is added to the attractor index.
+     * <p>
+     * A letter whose packed pattern is already stored is ignored, like a letter that is
+     * already stored: letters that differ only in cells with 0 and -1 pack to the same
+     * pattern, and one attractor cannot be removed for one of them and kept for the other.
+     * The letter is learned before it is added to the library; if the rule fails, the network
+     * is retrained without it, as the rule may have changed the weights before it failed.
      *
      * @param letter    A <strong>letter</strong> that will be added to the library.
      */
+    @Override
     public void addLetter(Letter letter) {
+        checkLetter(letter);
+
+        PackedPattern pattern = letter.toPacked();
+        if (attractors.containsKey(pattern))
+            return;
+
+        try {
+            learningRule.learn(weights, pattern);
+        } catch (RuntimeException e) {
+            train();
+            throw e;
+        }
         library.addLetter(letter);
+        addAttractor(pattern, letter);
+        invalidateCache();
     }
 
     /**
-     * Trains the network using the letters stored in the library. It calculates the
-     * weight matrix using the Hebbian learning rule by updating the weights for each
-     * stored letter. The weights are normalized by dividing them by the number of neurons.
-     * The diagonal elements of the weight matrix are then set to 0.
+     * Removes a Letter object from the network's library and the attractor index, and
+     * removes it from the weight matrix with the learning rule. If the rule cannot remove
+     * a pattern incrementally, the network is retrained without it. A letter that was ignored
+     * by addLetter is not in the library, so removing it leaves the network unchanged.
+     *
+     * @param letter    A <strong>letter</strong> that will be removed from the library.
+     */
+    @Override
+    public void removeLetter(Letter letter) {
+        if (library.removeLetter(letter)) {
+            PackedPattern pattern = letter.toPacked();
+            if (learningRule.unlearn(weights, pattern)) {
+                if (attractors.remove(pattern) != null && prefilter != null)
+                    prefilter.remove(pattern);
+                invalidateCache();
+            } else {
+                train();
+            }
+        }
+    }
+
+    /**
+     * Retrains the network from scratch using the letters stored in the library. It resets
+     * the weight matrix and calculates it using the learning rule, by default the Hebbian rule
+     * that adds the outer product of each stored letter, normalized by the number of neurons.
+     * The diagonal elements of the weight matrix stay 0. The attractor index and the pre-filter are rebuilt as well. As addLetter
+     * and removeLetter keep the weights up to date, calling this method is only needed to drop
+     * the rounding errors accumulated by many incremental updates.
      */
     public void train() {
-        if(library.empty())
-            return;
+        invalidateCache();
+        learningRule.reset(weights);
+        clearAttractors();
 
         for (Letter letter : library.getLetters()) {
-            ArrayList<ArrayList<Float>> letterArr = new ArrayList<>();
-            letterArr.add(letter.getLetter());
-            weights = addMatrices(weights, dotMatrices(transposeMatrix(letterArr), letterArr));
+            PackedPattern pattern = letter.toPacked();
+            learningRule.learn(weights, pattern);
+            addAttractor(pattern, letter);
         }
-        weights = scalarMult(weights, 1.0f/NEURON_NUM);
-        weights = diagonalFill(weights, 0.0f);
     }
 
     /**
@@ -65,21 +312,42 @@ public class HopfieldNN {
      * to the stored patterns, returning the closest match as a Letter object.
      *
      * @param inputLetter   The Letter object that needs to be predicted (matched to one of the stored letters).
-     * @return Returns a Letter object that represents the predicted closest match to the input letter from the network.
+     * @return Returns a Letter object that represents the predicted closest match to the input letter from the network,
+     * or null if it was not recognized within 100 iterations.
      */
+    @Override
     public Letter predict(Letter inputLetter) {
-        ArrayList<ArrayList<Float>> inputLetterArr = new ArrayList<>();
-        inputLetterArr.add(inputLetter.getLetter());
-
-        ArrayList<ArrayList<Float>> output = predict(inputLetterArr, 100);
-
-        ArrayList<Float> outputLetterArr = new ArrayList<>();
-        for (ArrayList<Float> i : output)
-            outputLetterArr.addAll(i);
+        checkLetter(inputLetter);
+        PackedPattern output = predict(inputLetter.toPacked(), 100);
+        return (output == null) ? null : new Letter(rows, cols, output);
+    }
 
-        Letter outputLetter = new Letter(outputLetterArr);
+    /**
+     * Predicts the closest matching stored letter for every input letter. The letters are
+     * recalled together, so each iteration is one matrix-matrix product instead of one
+     * matrix-vector product per letter.
+     *
+     * @param inputLetters  The Letter objects that need to be predicted.
+     * @return Returns the predicted letters in the order of the input letters. A letter that
+     * was not recognized within 100 iterations is returned as null.
+     */
+    public List<Letter> predictBatch(List<Letter> inputLetters) {
+        return predictBatch(inputLetters, 100);
+    }
 
-        return outputLetter;
+    /**
+     * Predicts the closest matching stored letter for every input letter. The letters are
+     * stacked as columns of one state matrix and updated synchronously whatever the update
+     * policy is: each iteration is one cache-blocked matrix-matrix product. A column leaves
+     * the active set as soon as it reaches a stored pattern.
+     *
+     * @param inputLetters  The Letter objects that need to be predicted.
+     * @param maxIterations The maximum number of iterations to run the prediction process.
+     * @return Returns the predicted letters in the order of the input letters. A letter that
+     * was not recognized within the specified number of iterations is returned as null.
+     */
+    public List<Letter> predictBatch(List<Letter> inputLetters, int maxIterations) {
+        return engine.predictBatch(inputLetters, maxIterations, recallListener);
     }
 
     /**
@@ -93,165 +361,135 @@ public class HopfieldNN {
      * letter from the network. If no match is found within the specified number of iterations, returns null.
      */
     public ArrayList<ArrayList<Float>> predict(ArrayList<ArrayList<Float>> inputLetter, Integer maxIterations) {
-        ArrayList<ArrayList<Float>> outputLetter;
-        inputLetter = transposeMatrix(inputLetter);
-
-        for (int i = 0; i < maxIterations; i++) {
-            outputLetter = signMatrices(dotMatrices(weights, inputLetter));
+        ArrayList<Float> inputLetterArr = new ArrayList<>();
+        for (ArrayList<Float> row : inputLetter)
+            inputLetterArr.addAll(row);
 
-            for (Letter letter : library.getLetters()) {
-                ArrayList<ArrayList<Float>> letterArr = new ArrayList<>();
-                letterArr.add(letter.getLetter());
-
-                if (outputLetter.equals(transposeMatrix(letterArr)))
-                    return outputLetter;
-            }
+        PackedPattern output = predict(PackedPattern.fromVector(toVector(inputLetterArr)), maxIterations);
+        if (output == null)
+            return null;
 
-            inputLetter = outputLetter;
+        ArrayList<ArrayList<Float>> outputLetter = new ArrayList<>();
+        for (int i = 0; i < output.size(); i++) {
+            ArrayList<Float> row = new ArrayList<>();
+            row.add(output.getState(i));
+            outputLetter.add(row);
         }
-        return null;
+        return outputLetter;
     }
 
     /**
-     * Adds <strong>two matrices</strong> element-wise and returns the result.
-     * Throws an exception if the matrices have different dimensions.
+     * Runs the packed input pattern through the Hopfield Network for a specified number of
+     * iterations (maxIterations), updating the neurons according to the update policy.
+     * The state is kept packed between iterations and looked up in the attractor index,
+     * so each check is one hash probe and the loop does not allocate.
      *
-     * @param matrix1    The first matrix to be added.
-     * @param matrix2    The second matrix to be added.
-     * @return The result of element-wise sum of the two matrices.
+     * @param inputPattern  The packed pattern that needs to be predicted (matched to one of the stored letters).
+     * @param maxIterations The maximum number of iterations (sweeps over all neurons) to run the prediction process.
+     * @return Returns the packed stored pattern the input converged to. If no match is found
+     * within the specified number of iterations, returns null.
      */
-    private ArrayList<ArrayList<Float>> addMatrices(ArrayList<ArrayList<Float>> matrix1,
-                                                      ArrayList<ArrayList<Float>> matrix2) {
-        int rowsNum = matrix1.size();
-        int colsNum = matrix1.get(0).size();
-
-        if (rowsNum != matrix2.size() || colsNum != matrix2.get(0).size())
-            throw new IllegalArgumentException("Matrices must have the same dimensions for addition.");
-
-        ArrayList<ArrayList<Float>> resMatrix = new ArrayList<>(rowsNum);
-        for (int i = 0; i < rowsNum; i++) {
-            ArrayList<Float> row = new ArrayList<>();
-
-            for (int j = 0; j < colsNum; j++) {
-                row.add(matrix1.get(i).get(j) + matrix2.get(i).get(j));
-            }
-            resMatrix.add(row);
-        }
-        return resMatrix;
+    @Override
+    public PackedPattern predict(PackedPattern inputPattern, int maxIterations) {
+        return engine.predict(inputPattern, maxIterations, updatePolicy, random, recallListener);
     }
 
     /**
-     * Multiplies <strong>two matrices</strong> and returns the resulting matrix.
-     * Throws an exception if the matrices cannot be multiplied due to incompatible dimensions.
+     * Runs the packed input pattern through the Hopfield Network like predict, and tells how
+     * the recall ended: at a stored pattern, at a spurious fixed point, in a cycle of two states
+     * or after maxIterations iterations. The recall stops as soon as one of them is detected.
      *
-     * @param matrix1    The first matrix to be multiplied.
-     * @param matrix2    The second matrix to be multiplied.
-     * @return The result of multiplying the two matrices.
+     * @param inputPattern  The packed pattern that needs to be recalled.
+     * @param maxIterations The maximum number of iterations (sweeps over all neurons) to run the recall.
+     * @return the result of the recall with the final state and the nearest stored pattern.
      */
-    private ArrayList<ArrayList<Float>> dotMatrices(ArrayList<ArrayList<Float>> matrix1,
-                                                            ArrayList<ArrayList<Float>> matrix2) {
-        int rows1 = matrix1.size();
-        int cols1 = matrix1.get(0).size();
-        int rows2 = matrix2.size();
-        int cols2 = matrix2.get(0).size();
-
-        if (cols1 != rows2)
-            throw new IllegalArgumentException("Matrices dimensions are not suitable for multiplication.");
-
-        ArrayList<ArrayList<Float>> resMatrix = new ArrayList<>();
-        Float[] weightsArr = new Float[cols2];
-        Arrays.fill(weightsArr, 0.0f);
-
-        for (int i = 0; i < rows1; i++)
-            resMatrix.add(new ArrayList<>(Arrays.asList(weightsArr)));
-
-         for (int i = 0; i < rows1; i++)
-            for (int j = 0; j < cols2; j++)
-                for (int k = 0; k < cols1; k++)
-                    resMatrix.get(i).set(j, resMatrix.get(i).get(j) + matrix1.get(i).get(k) * matrix2.get(k).get(j));
-
-        return resMatrix;
+    public RecallResult recall(PackedPattern inputPattern, int maxIterations) {
+        return engine.recall(inputPattern, maxIterations, updatePolicy, random, recallListener);
     }
 
     /**
-     * Transposes a given <strong>matrix</strong> (rows become columns and vice versa).
+     * Takes an immutable snapshot of the trained network: a copy of the weight matrix and
+     * of the stored letters together with the current update policy, recall listener and
+     * pre-filter radius. Later changes of the network do not affect the snapshot, and the
+     * snapshot can be used by many threads at once.
      *
-     * @param matrix    The matrix to be transposed.
-     * @return The transposed matrix.
+     * @return The trained model of the network in its current state.
      */
-    private ArrayList<ArrayList<Float>> transposeMatrix(ArrayList<ArrayList<Float>> matrix) {
-        int rowsNum = matrix.size();
-        int colsNum = matrix.get(0).size();
-
-        ArrayList<ArrayList<Float>> resMatrix = new ArrayList<>();
+    public TrainedModel snapshot() {
+        return new TrainedModel(rows, cols, weights.copy(), new HashMap<>(attractors), updatePolicy, recallListener,
+                getPrefilterRadius(), null);
+    }
 
-        for (int j = 0; j < colsNum; j++) {
-            ArrayList<Float> row = new ArrayList<>();
-            for (int i = 0; i < rowsNum; i++)
-                row.add(matrix.get(i).get(j));
+    /**
+     * Creates the recall engine over the current pre-filter and cache.
+     */
+    private void rebuildEngine() {
+        engine = new RecallEngine(weights, attractors, prefilter, recallCache);
+    }
 
-            resMatrix.add(row);
-        }
-        return resMatrix;
+    /**
+     * Drops the cached recall results after a change of the network.
+     */
+    private void invalidateCache() {
+        if (recallCache != null)
+            recallCache.invalidate();
     }
 
     /**
-     * Multiplies each element of the <strong>matrix</strong> by a
-     * <strong>scalar</strong> value and returns the resulting matrix.
+     * Adds the packed letter to the attractor index and to the pre-filter.
      *
-     * @param matrix    The matrix to be multiplied by the scalar.
-     * @param scalar    The scalar value to multiply each element of the matrix by.
-     * @return The matrix after scalar multiplication.
+     * @param pattern   The packed <strong>pattern</strong> of the letter.
+     * @param letter    The stored <strong>letter</strong>.
      */
-    private ArrayList<ArrayList<Float>> scalarMult(ArrayList<ArrayList<Float>> matrix, Float scalar) {
-        ArrayList<ArrayList<Float>> resMatrix = new ArrayList<>();
-
-        for (int i = 0; i < matrix.size(); i++) {
-            ArrayList<Float> row = new ArrayList<>();
-            for (int j = 0; j < matrix.get(0).size(); j++) {
-                row.add(matrix.get(i).get(j) * scalar);
-            }
-            resMatrix.add(row);
-        }
+    private void addAttractor(PackedPattern pattern, Letter letter) {
+        if (attractors.put(pattern, letter) == null && prefilter != null)
+            prefilter.add(pattern);
+    }
 
-        return resMatrix;
+    /**
+     * Removes all attractors from the attractor index and the pre-filter, so that letters
+     * dropped from the library cannot be answered by the pre-filter any more.
+     */
+    private void clearAttractors() {
+        attractors.clear();
+        if (prefilter != null)
+            prefilter.clear();
     }
 
     /**
-     *  Sets all the diagonal elements of a matrix to a specified <strong>value</strong>.
+     * Checks that the learning rule can train the weight store.
      *
-     * @param matrix    The matrix whose diagonal elements will be filled.
-     * @param value     The value to set in the diagonal elements of the matrix.
-     * @return The matrix with the diagonal elements set to the specified value.
+     * @param learningRule  The <strong>learning rule</strong> to be checked.
+     * @param weights       The store of the <strong>weights</strong> it would train.
      */
-    private ArrayList<ArrayList<Float>> diagonalFill(ArrayList<ArrayList<Float>> matrix, Float value) {
-        ArrayList<ArrayList<Float>> resMatrix = new ArrayList<>();
-        for (ArrayList<Float> i : matrix)
-            resMatrix.add(new ArrayList<>(i));
-
-        for (int i = 0; i < matrix.size(); i++)
-                resMatrix.get(i).set(i, value);
-
-        return resMatrix;
+    private static void checkSupport(LearningRule learningRule, WeightStore weights) {
+        if (!learningRule.supports(weights))
+            throw new IllegalArgumentException(learningRule.getClass().getSimpleName() + " cannot train "
+                    + weights.getClass().getSimpleName());
     }
 
     /**
-     * Applies a sign function to each element of the <strong>matrix</strong>.
+     * Checks that the <strong>letter</strong> has the dimensions of the network.
      *
-     * @param matrix    The matrix to apply the sign function to.
-     * @return The result matrix after sign operation.
+     * @param letter    A letter to be checked.
      */
-    private ArrayList<ArrayList<Float>> signMatrices(ArrayList<ArrayList<Float>> matrix) {
-        ArrayList<ArrayList<Float>> resMatrix = new ArrayList<>();
+    private void checkLetter(Letter letter) {
+        if (letter.getRowsNum() != rows || letter.getColsNum() != cols)
+            throw new IllegalArgumentException("Letter dimensions must be " + rows + "x" + cols + " instead of "
+                    + letter.getRowsNum() + "x" + letter.getColsNum());
+    }
 
-        for (ArrayList<Float> row : matrix) {
-            ArrayList<Float> newRow = new ArrayList<>();
-            for (Float i : row) {
-                newRow.add((i <= 0.0f) ? 1.0f : -1.0f);
-            }
-            resMatrix.add(newRow);
-        }
+    /**
+     * Converts a letter array into a primitive <strong>vector</strong> of neuron states.
+     *
+     * @param letter    An array that represents <strong>letter</strong>.
+     * @return The primitive vector with the same values.
+     */
+    private float[] toVector(ArrayList<Float> letter) {
+        float[] vector = new float[letter.size()];
+        for (int i = 0; i < vector.length; i++)
+            vector[i] = letter.get(i);
 
-        return resMatrix;
+        return vector;
     }
 }
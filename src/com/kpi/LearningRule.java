@@ -0,0 +1,49 @@
+package com.kpi;
+
+/**
+ * A rule that turns stored patterns into the weights of a Hopfield network.
+ * <p>
+ * The rule is applied incrementally: every added pattern updates the weights in place,
+ * so the network never has to be recalculated from the whole library. A rule may keep
+ * its own state between the updates, so one instance must not be shared by several networks.
+ */
+public interface LearningRule {
+    /**
+     * Clears the weights and any state of the rule, so it can learn the patterns again from scratch.
+     *
+     * @param weights   The store of the <strong>weights</strong> to be cleared.
+     */
+    void reset(WeightStore weights);
+
+    /**
+     * Updates the weights so the network also stores the given pattern.
+     *
+     * @param weights   The store of the <strong>weights</strong> to be updated.
+     * @param pattern   The <strong>pattern</strong> to be stored. Must have the size of the store.
+     */
+    void learn(WeightStore weights, PackedPattern pattern);
+
+    /**
+     * Updates the weights so the network no longer stores the given pattern, if the rule
+     * can do it incrementally. Otherwise the weights are left unchanged and the network
+     * has to be trained again without the pattern.
+     *
+     * @param weights   The store of the <strong>weights</strong> to be updated.
+     * @param pattern   The stored <strong>pattern</strong> to be removed.
+     * @return true if the pattern was removed from the weights, false if the rule cannot do it incrementally.
+     */
+    default boolean unlearn(WeightStore weights, PackedPattern pattern) {
+        return false;
+    }
+
+    /**
+     * Tells whether the rule can train the given weight store. A network checks it before it
+     * uses the rule, so that an unsupported store fails at once instead of in the middle of an update.
+     *
+     * @param weights   The store of the <strong>weights</strong> to be trained.
+     * @return true if the rule can train the store.
+     */
+    default boolean supports(WeightStore weights) {
+        return true;
+    }
+}
@@ -6,37 +6,88 @@ import java.util.Objects;
 
 /**
  * A Letter object.
- * A Letter described as 5x5 matrix and is stored in ArrayList.
+ * A Letter described as a matrix of rows x columns (5x5 by default) and is stored in ArrayList.
  */
 public class Letter {
+    /** The default amount of <strong>rows</strong> in letter matrix. */
+    public static final int DEFAULT_ROWS = 5;
+    /** The default amount of <strong>columns</strong> in letter matrix. */
+    public static final int DEFAULT_COLUMNS = 5;
     /** The amount of <strong>rows</strong> in letter matrix. */
-    private static final int LETTER_ROW = 5;
+    private final int rows;
     /** The amount of <strong>columns</strong> in letter matrix. */
-    private static final int LETTER_COLUMN = 5;
-    /** The total <strong>size</strong> of letter matrix. */
-    private static final int LETTER_SIZE = LETTER_COLUMN * LETTER_ROW;
+    private final int cols;
     /** An array that represents <strong>letter</strong> */
     private ArrayList<Float> letter;
     /** The <strong>empty</strong> flag for letter. */
     private boolean empty;
 
     /**
-     * Initializes a default Letter. It is initialized as an empty letter.
+     * Initializes a default 5x5 Letter. It is initialized as an empty letter.
      * All values in array are zero.
      */
     public Letter() {
-        Float[] weightsArr = new Float[LETTER_SIZE];
+        this(DEFAULT_ROWS, DEFAULT_COLUMNS);
+    }
+
+    /**
+     * Initializes an empty Letter of the given dimensions.
+     * All values in array are zero.
+     *
+     * @param rows  The amount of <strong>rows</strong> in letter matrix.
+     * @param cols  The amount of <strong>columns</strong> in letter matrix.
+     */
+    public Letter(int rows, int cols) {
+        if (rows <= 0 || cols <= 0)
+            throw new IllegalArgumentException("Letter dimensions must be positive instead of " + rows + "x" + cols);
+
+        this.rows = rows;
+        this.cols = cols;
+
+        Float[] weightsArr = new Float[rows * cols];
         Arrays.fill(weightsArr, 0.0f);
         letter = new ArrayList<>(Arrays.asList(weightsArr));
         empty = true;
     }
 
     /**
-     * Initializes a Letter based on passed argument.
+     * Initializes a 5x5 Letter based on passed argument.
      *
      * @param letter    An array that represents <strong>letter</strong>.
      */
     public Letter(ArrayList<Float> letter) {
+        this(DEFAULT_ROWS, DEFAULT_COLUMNS, letter);
+    }
+
+    /**
+     * Initializes a Letter of the given dimensions based on passed argument.
+     *
+     * @param rows      The amount of <strong>rows</strong> in letter matrix.
+     * @param cols      The amount of <strong>columns</strong> in letter matrix.
+     * @param letter    An array that represents <strong>letter</strong>.
+     */
+    public Letter(int rows, int cols, ArrayList<Float> letter) {
+        this(rows, cols);
+        setLetter(letter);
+    }
+
+    /**
+     * Initializes a Letter of the given dimensions from a packed pattern. Set bits become 1
+     * and cleared bits become -1.
+     *
+     * @param rows      The amount of <strong>rows</strong> in letter matrix.
+     * @param cols      The amount of <strong>columns</strong> in letter matrix.
+     * @param pattern   A packed <strong>pattern</strong> that represents letter.
+     */
+    public Letter(int rows, int cols, PackedPattern pattern) {
+        this(rows, cols);
+        if (pattern == null)
+            throw new NullPointerException("The letter pattern is null.");
+
+        ArrayList<Float> letter = new ArrayList<>(pattern.size());
+        for (int i = 0; i < pattern.size(); i++)
+            letter.add(pattern.getState(i));
+
         setLetter(letter);
     }
 
@@ -49,19 +100,41 @@ public class Letter {
     }
 
     /**
-     * Returns the constant amount of rows in Letter.
-     * @return the constant amount of rows in Letter.
+     * Packs the letter array into a bipolar pattern. Positive values become 1,
+     * all others (including the zeros of an empty letter) become -1.
+     * @return the packed pattern of this Letter.
+     */
+    public PackedPattern toPacked() {
+        PackedPattern pattern = new PackedPattern(letter.size());
+        for (int i = 0; i < letter.size(); i++)
+            if (letter.get(i) > 0.0f)
+                pattern.set(i, true);
+
+        return pattern;
+    }
+
+    /**
+     * Returns the amount of rows in Letter.
+     * @return the amount of rows in Letter.
      */
     public Integer getRowsNum() {
-        return LETTER_ROW;
+        return rows;
     }
 
     /**
-     * Returns the constant amount of columns in Letter.
-     * @return the constant amount of columns in Letter.
+     * Returns the amount of columns in Letter.
+     * @return the amount of columns in Letter.
      */
     public Integer getColsNum() {
-        return LETTER_COLUMN;
+        return cols;
+    }
+
+    /**
+     * Returns the total size of Letter, the amount of rows multiplied by the amount of columns.
+     * @return the total size of Letter.
+     */
+    public int size() {
+        return rows * cols;
     }
 
     /**
@@ -74,8 +147,8 @@ public class Letter {
         if (letter == null)
             throw new NullPointerException("The letter array is null.");
 
-        if (letter.size() != LETTER_SIZE)
-            throw new IllegalArgumentException("Size of letter array must be 25 instead of " + letter.size());
+        if (letter.size() != size())
+            throw new IllegalArgumentException("Size of letter array must be " + size() + " instead of " + letter.size());
 
         this.letter = letter;
         this.empty = isEmpty();
@@ -103,16 +176,17 @@ public class Letter {
     public String toString() {
         String retStr = "";
 
-        for (int i = 0; i < LETTER_SIZE; i++)
+        for (int i = 0; i < size(); i++)
             retStr += (letter.get(i) == 1 ? "#" : ".") +
-                    ((i+1) % 5 == 0 ? "\n" : " ");
+                    ((i+1) % cols == 0 ? "\n" : " ");
 
         return retStr;
     }
 
     /**
      * Compares this Letter object with another object to determine if they are equal.
-     * Two Letter objects are considered equal if their internal letter representations are the same.
+     * Two Letter objects are considered equal if they have the same dimensions and their
+     * internal letter representations are the same.
      *
      * @param o The object to compare with this Letter.
      * @return Returns true if the objects are equal, otherwise false.
@@ -125,16 +199,16 @@ public class Letter {
             return false;
 
         Letter letter1 = (Letter) o;
-        return Objects.equals(letter, letter1.letter);
+        return rows == letter1.rows && cols == letter1.cols && Objects.equals(letter, letter1.letter);
     }
 
     /**
-     * Computes the hash code for the Letter object based on its internal letter representation.
+     * Computes the hash code for the Letter object based on its dimensions and internal letter representation.
      *
      * @return Returns an int hash code value for the Letter object.
      */
     @Override
     public int hashCode() {
-        return Objects.hash(letter);
+        return Objects.hash(rows, cols, letter);
     }
 }
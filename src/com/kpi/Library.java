@@ -31,9 +31,20 @@ public class Library {
      * Adds a letter to the library.
      *
      * @param letter    A <strong>letter</strong> that will be added to the library.
+     * @return true if the library did not already contain the letter.
      */
-    public void addLetter(Letter letter) {
-        letters.add(letter);
+    public boolean addLetter(Letter letter) {
+        return letters.add(letter);
+    }
+
+    /**
+     * Removes a letter from the library.
+     *
+     * @param letter    A <strong>letter</strong> that will be removed from the library.
+     * @return true if the library contained the letter.
+     */
+    public boolean removeLetter(Letter letter) {
+        return letters.remove(letter);
     }
 
     /**
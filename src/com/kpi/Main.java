@@ -6,6 +6,8 @@ public class Main {
 
     public static void main(String[] args) {
 
-        MainWindow mainWindow = new MainWindow();
+        MainWindow mainWindow = (args.length == 2)
+                ? new MainWindow(Integer.parseInt(args[0]), Integer.parseInt(args[1]))
+                : new MainWindow();
     }
 }
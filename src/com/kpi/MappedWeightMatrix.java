@@ -0,0 +1,202 @@
+package com.kpi;
+
+import java.io.IOException;
+import java.nio.FloatBuffer;
+import java.nio.channels.FileChannel;
+import java.util.Arrays;
+
+/**
+ * A MappedWeightMatrix object.
+ * A read-only symmetric weight matrix with a zero diagonal, read directly from the upper
+ * triangle of a memory-mapped model file. Nothing is copied onto the heap, so opening the
+ * matrix costs the same for any size and processes that map the same file share one copy
+ * of it in the page cache. The triangle is mapped in segments, as one mapping cannot exceed 2 GiB.
+ */
+class MappedWeightMatrix implements WeightStore {
+    /** The amount of weights in one mapped segment, a power of two. */
+    private static final int SEGMENT_SIZE = 1 << 28;
+    /** The number of <strong>neurons</strong> the weights connect. */
+    private final int size;
+    /** The mapped segments of the upper triangle, row after row. */
+    private final FloatBuffer[] segments;
+
+    /**
+     * Maps the upper triangle of the weights from the file channel.
+     *
+     * @param channel   The channel of the model file, opened for reading.
+     * @param offset    The position of the first weight in the file.
+     * @param size      The number of <strong>neurons</strong> the weights connect.
+     * @throws IOException if the file cannot be mapped.
+     */
+    MappedWeightMatrix(FileChannel channel, long offset, int size) throws IOException {
+        this.size = size;
+
+        long weightsNum = triangleSize(size);
+        segments = new FloatBuffer[(int) ((weightsNum + SEGMENT_SIZE - 1) / SEGMENT_SIZE)];
+        for (int s = 0; s < segments.length; s++) {
+            long first = (long) s * SEGMENT_SIZE;
+            long length = Math.min(SEGMENT_SIZE, weightsNum - first);
+            segments[s] = channel.map(FileChannel.MapMode.READ_ONLY, offset + first * Float.BYTES, length * Float.BYTES)
+                    .order(ModelFile.ORDER).asFloatBuffer();
+        }
+    }
+
+    /**
+     * Returns the amount of weights in the upper triangle (without the diagonal) of a matrix.
+     *
+     * @param size  The amount of rows (and columns) in the matrix.
+     * @return the amount of weights in the upper triangle.
+     */
+    static long triangleSize(int size) {
+        return (long) size * (size - 1) / 2;
+    }
+
+    /**
+     * Returns the position of a weight of the upper triangle, row after row.
+     *
+     * @param row   The row of the weight.
+     * @param col   The column of the weight, greater than the row.
+     * @param size  The amount of rows (and columns) in the matrix.
+     * @return the position of the weight in the triangle.
+     */
+    static long triangleIndex(int row, int col, int size) {
+        return (long) row * size - (long) row * (row + 1) / 2 + (col - row - 1);
+    }
+
+    /**
+     * Returns the weight at the given position of the triangle.
+     *
+     * @param index The position of the weight.
+     * @return the weight at the position.
+     */
+    private float weight(long index) {
+        return segments[(int) (index / SEGMENT_SIZE)].get((int) (index % SEGMENT_SIZE));
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public float get(int row, int col) {
+        if (row == col)
+            return 0.0f;
+
+        return (row < col) ? weight(triangleIndex(row, col, size)) : weight(triangleIndex(col, row, size));
+    }
+
+    /**
+     * Not supported: the mapped matrix is read-only.
+     */
+    @Override
+    public void clear() {
+        throw new UnsupportedOperationException("The mapped weight matrix is read-only.");
+    }
+
+    /**
+     * Not supported: the mapped matrix is read-only.
+     */
+    @Override
+    public void scale(float scalar) {
+        throw new UnsupportedOperationException("The mapped weight matrix is read-only.");
+    }
+
+    /**
+     * Not supported: the mapped matrix is read-only.
+     */
+    @Override
+    public void addOuterProduct(PackedPattern pattern, float scale) {
+        throw new UnsupportedOperationException("The mapped weight matrix is read-only.");
+    }
+
+    /**
+     * Not supported: the mapped matrix is read-only.
+     */
+    @Override
+    public void addOuterProduct(float[] vector, float scale) {
+        throw new UnsupportedOperationException("The mapped weight matrix is read-only.");
+    }
+
+    @Override
+    public boolean supportsVectorProducts() {
+        return false;
+    }
+
+    /**
+     * Multiplies the weights by the bipolar <strong>pattern</strong>. Every weight of the
+     * triangle is read once and applied to both its row and its column.
+     *
+     * @param pattern   The pattern to be multiplied. Must have the size of the matrix.
+     * @param result    The array the product is written to. Must have the size of the matrix.
+     */
+    @Override
+    public void multiply(PackedPattern pattern, float[] result) {
+        if (pattern.size() != size || result.length != size)
+            throw new IllegalArgumentException("Size of pattern and result must be " + size + ".");
+
+        Arrays.fill(result, 0.0f);
+        long index = 0;
+        for (int i = 0; i < size; i++) {
+            boolean stateI = pattern.get(i);
+            float sum = result[i];
+
+            for (int j = i + 1; j < size; j++) {
+                float weight = weight(index++);
+                sum += pattern.get(j) ? weight : -weight;
+                result[j] += stateI ? weight : -weight;
+            }
+            result[i] = sum;
+        }
+    }
+
+    @Override
+    public void multiply(float[] matrix, int stride, int cols, float[] result) {
+        if (cols > stride)
+            throw new IllegalArgumentException("Amount of columns must not exceed the stride " + stride + " instead of " + cols);
+        if (matrix.length < size * stride || result.length < size * stride)
+            throw new IllegalArgumentException("Matrices must have " + size + " rows of length " + stride + ".");
+
+        for (int i = 0; i < size; i++)
+            Arrays.fill(result, i * stride, i * stride + cols, 0.0f);
+
+        long index = 0;
+        for (int i = 0; i < size; i++) {
+            int offsetI = i * stride;
+
+            for (int j = i + 1; j < size; j++) {
+                float weight = weight(index++);
+                if (weight == 0.0f)
+                    continue;
+
+                int offsetJ = j * stride;
+                for (int c = 0; c < cols; c++) {
+                    result[offsetI + c] += weight * matrix[offsetJ + c];
+                    result[offsetJ + c] += weight * matrix[offsetI + c];
+                }
+            }
+        }
+    }
+
+    @Override
+    public void addColumn(int col, float factor, float[] result) {
+        if (result.length != size)
+            throw new IllegalArgumentException("Size of vector must be " + size + " instead of " + result.length);
+
+        for (int i = 0; i < col; i++)
+            result[i] += factor * weight(triangleIndex(i, col, size));
+
+        long index = triangleIndex(col, col + 1, size);
+        for (int j = col + 1; j < size; j++)
+            result[j] += factor * weight(index++);
+    }
+
+    /**
+     * Returns this matrix: it is read-only, so it can be shared instead of copied.
+     * @return this matrix.
+     */
+    @Override
+    public MappedWeightMatrix copy() {
+        return this;
+    }
+}
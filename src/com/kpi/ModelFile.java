@@ -0,0 +1,232 @@
+package com.kpi;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.ByteOrder;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.HashMap;
+import java.util.zip.CRC32;
+
+/**
+ * Saves trained models to a compact binary file and loads them back through memory mapping.
+ * <p>
+ * The file is little-endian, unlike the big-endian streams of the batch tools and the
+ * recognition protocol. Those are read once, field by field, while the weights of a model
+ * are read from the mapped file on every recall, and little-endian is the native order of
+ * the x86 and ARM machines the models run on, so the floats are read without swapping
+ * their bytes. The order is set in one place, ORDER, for the writer and all mapped views.
+ * <p>
+ * The file consists of:
+ * <ul>
+ *     <li>a 32-byte header: magic number, format version, letter rows, letter columns,
+ *     number of neurons, number of stored patterns, words per pattern and update policy;</li>
+ *     <li>the upper triangle of the symmetric weight matrix without the diagonal,
+ *     N(N-1)/2 floats row after row;</li>
+ *     <li>padding to 8 bytes and the stored patterns, each packed into longs;</li>
+ *     <li>the CRC32 checksum of everything before it, as a long.</li>
+ * </ul>
+ * The weights are never read onto the heap when loading: the model recalls straight from
+ * the mapped file, so a large model opens in milliseconds and processes that load the same
+ * file share its pages.
+ */
+public final class ModelFile {
+    /** The <strong>magic number</strong> at the beginning of every model file, "HNN1" in ASCII. */
+    private static final int MAGIC = 0x484E4E31;
+    /** The <strong>version</strong> of the file format. */
+    private static final int VERSION = 1;
+    /** The size of the header in bytes. */
+    private static final int HEADER_SIZE = 32;
+    /** The size of the buffer used for writing and checksum calculation. */
+    private static final int BUFFER_SIZE = 1 << 16;
+    /** The byte order of every number in the file. */
+    static final ByteOrder ORDER = ByteOrder.LITTLE_ENDIAN;
+
+    private ModelFile() {
+    }
+
+    /**
+     * Saves the trained model to the file, replacing it if it exists.
+     *
+     * @param model The trained <strong>model</strong> to be saved.
+     * @param path  The <strong>path</strong> of the file.
+     * @throws IOException if the file cannot be written.
+     */
+    public static void save(TrainedModel model, Path path) throws IOException {
+        WeightStore weights = model.weights();
+        int size = weights.size();
+        int wordsNum = PackedPattern.wordsNum(size);
+
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.CREATE, StandardOpenOption.WRITE,
+                StandardOpenOption.TRUNCATE_EXISTING)) {
+            ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE).order(ORDER);
+            CRC32 checksum = new CRC32();
+
+            buffer.putInt(MAGIC).putInt(VERSION)
+                    .putInt(model.getRowsNum()).putInt(model.getColsNum())
+                    .putInt(size).putInt(model.storedPatterns().size()).putInt(wordsNum)
+                    .putInt(model.getUpdatePolicy().ordinal());
+
+            for (int i = 0; i < size; i++) {
+                for (int j = i + 1; j < size; j++) {
+                    if (buffer.remaining() < Float.BYTES)
+                        flush(channel, buffer, checksum);
+                    buffer.putFloat(weights.get(i, j));
+                }
+            }
+
+            long position = HEADER_SIZE + MappedWeightMatrix.triangleSize(size) * Float.BYTES;
+            for (long p = position; p % Long.BYTES != 0; p++)
+                buffer.put((byte) 0);
+
+            for (PackedPattern pattern : model.storedPatterns()) {
+                for (long word : pattern.words()) {
+                    if (buffer.remaining() < Long.BYTES)
+                        flush(channel, buffer, checksum);
+                    buffer.putLong(word);
+                }
+            }
+            flush(channel, buffer, checksum);
+
+            buffer.putLong(checksum.getValue());
+            buffer.flip();
+            while (buffer.hasRemaining())
+                channel.write(buffer);
+        }
+    }
+
+    /**
+     * Loads a trained model from the file without verifying its checksum, so the time to
+     * open it does not depend on the size of the weights.
+     *
+     * @param path  The <strong>path</strong> of the file.
+     * @return The trained model that recalls from the mapped file.
+     * @throws IOException if the file cannot be read or is not a valid model file.
+     */
+    public static TrainedModel load(Path path) throws IOException {
+        return load(path, false);
+    }
+
+    /**
+     * Loads a trained model from the file. The weights stay in the mapped file; only the
+     * header and the stored patterns are read onto the heap.
+     *
+     * @param path              The <strong>path</strong> of the file.
+     * @param verifyChecksum    True to read the whole file and check its checksum first.
+     * @return The trained model that recalls from the mapped file.
+     * @throws IOException if the file cannot be read, is not a valid model file or its checksum does not match.
+     */
+    public static TrainedModel load(Path path, boolean verifyChecksum) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            long fileSize = channel.size();
+            if (fileSize < HEADER_SIZE + Long.BYTES)
+                throw new IOException("Not a Hopfield model file: " + path);
+
+            MappedByteBuffer header = channel.map(FileChannel.MapMode.READ_ONLY, 0, HEADER_SIZE);
+            header.order(ORDER);
+            if (header.getInt() != MAGIC)
+                throw new IOException("Not a Hopfield model file: " + path);
+            int version = header.getInt();
+            if (version != VERSION)
+                throw new IOException("Unsupported model file version " + version + ": " + path);
+
+            int rows = header.getInt();
+            int cols = header.getInt();
+            int size = header.getInt();
+            int patternsNum = header.getInt();
+            int wordsNum = header.getInt();
+            int policy = header.getInt();
+            if (rows <= 0 || cols <= 0 || size != rows * cols || patternsNum < 0
+                    || wordsNum != PackedPattern.wordsNum(size) || policy < 0 || policy >= UpdatePolicy.values().length)
+                throw new IOException("Corrupted model file header: " + path);
+
+            long patternsOffset = align(HEADER_SIZE + MappedWeightMatrix.triangleSize(size) * Float.BYTES);
+            long checksumOffset = patternsOffset + (long) patternsNum * wordsNum * Long.BYTES;
+            if (fileSize != checksumOffset + Long.BYTES)
+                throw new IOException("Unexpected model file size " + fileSize + ": " + path);
+
+            if (verifyChecksum)
+                verify(channel, checksumOffset, path);
+
+            MappedWeightMatrix weights = new MappedWeightMatrix(channel, HEADER_SIZE, size);
+
+            HashMap<PackedPattern, Letter> attractors = new HashMap<>();
+            if (patternsNum > 0) {
+                ByteBuffer patterns = channel.map(FileChannel.MapMode.READ_ONLY, patternsOffset,
+                        checksumOffset - patternsOffset).order(ORDER);
+                long[] words = new long[wordsNum];
+                for (int p = 0; p < patternsNum; p++) {
+                    for (int w = 0; w < wordsNum; w++)
+                        words[w] = patterns.getLong();
+
+                    PackedPattern pattern = new PackedPattern(size, words);
+                    attractors.put(pattern, new Letter(rows, cols, pattern));
+                }
+            }
+
+            return new TrainedModel(rows, cols, weights, attractors, UpdatePolicy.values()[policy], null, -1, null);
+        }
+    }
+
+    /**
+     * Calculates the checksum of the file up to the stored one and compares them.
+     *
+     * @param channel           The channel of the model file.
+     * @param checksumOffset    The position of the stored checksum.
+     * @param path              The path of the file, for the error message.
+     * @throws IOException if the file cannot be read or the checksums differ.
+     */
+    private static void verify(FileChannel channel, long checksumOffset, Path path) throws IOException {
+        CRC32 checksum = new CRC32();
+        ByteBuffer buffer = ByteBuffer.allocate(BUFFER_SIZE);
+
+        long position = 0;
+        while (position < checksumOffset) {
+            buffer.clear();
+            buffer.limit((int) Math.min(BUFFER_SIZE, checksumOffset - position));
+            int read = channel.read(buffer, position);
+            if (read < 0)
+                throw new IOException("Unexpected end of model file: " + path);
+
+            buffer.flip();
+            checksum.update(buffer);
+            position += read;
+        }
+
+        ByteBuffer stored = ByteBuffer.allocate(Long.BYTES).order(ORDER);
+        while (stored.hasRemaining())
+            if (channel.read(stored, checksumOffset + stored.position()) < 0)
+                throw new IOException("Unexpected end of model file: " + path);
+
+        if (stored.getLong(0) != checksum.getValue())
+            throw new IOException("Checksum mismatch in model file: " + path);
+    }
+
+    /**
+     * Writes the buffered bytes to the channel and adds them to the checksum.
+     *
+     * @param channel   The channel to write to.
+     * @param buffer    The buffer with the bytes; it is cleared afterwards.
+     * @param checksum  The running checksum of the file.
+     * @throws IOException if the bytes cannot be written.
+     */
+    private static void flush(FileChannel channel, ByteBuffer buffer, CRC32 checksum) throws IOException {
+        buffer.flip();
+        checksum.update(buffer.array(), 0, buffer.limit());
+        while (buffer.hasRemaining())
+            channel.write(buffer);
+        buffer.clear();
+    }
+
+    /**
+     * Rounds the position up to a multiple of 8 bytes.
+     *
+     * @param position  The position in the file.
+     * @return the aligned position.
+     */
+    private static long align(long position) {
+        return (position + Long.BYTES - 1) / Long.BYTES * Long.BYTES;
+    }
+}
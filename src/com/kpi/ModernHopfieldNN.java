@@ -0,0 +1,326 @@
+package com.kpi;
+
+import java.util.Arrays;
+import java.util.HashMap;
+
+/**
+ * A modern (dense associative memory) Hopfield network.
+ * <p>
+ * Instead of a weight matrix the network keeps the stored patterns themselves, as rows of
+ * one contiguous primitive matrix X, and recalls with the continuous update
+ * &xi; = X<sup>T</sup> * softmax(&beta; * X * &xi;): the new state is the average of the stored
+ * patterns weighted by the softmax of their overlaps with the current state. The capacity is
+ * exponential in the number of neurons instead of linear, and the recall usually converges in
+ * one step, as the softmax puts almost all weight on the closest pattern.
+ * <p>
+ * With a positive <strong>top k</strong> only the k patterns with the largest overlaps with
+ * the input take part in the recall. They are chosen once, from overlaps counted on the packed
+ * input, 64 states per operation; every step then weighs only those k patterns, so the cost
+ * of a step grows with k rather than with the number of stored patterns.
+ */
+public class ModernHopfieldNN implements AssociativeMemory {
+    /** The inverse temperature used when no other is given. */
+    public static final float DEFAULT_BETA = 1.0f;
+    /** The amount of rows of the pattern matrix allocated at first. */
+    private static final int INITIAL_CAPACITY = 8;
+    /** The amount of <strong>rows</strong> in the letters the network works with. */
+    private final int rows;
+    /** The amount of <strong>columns</strong> in the letters the network works with. */
+    private final int cols;
+    /** The number of neurons in the network, one per letter cell. */
+    private final int size;
+    /** The inverse temperature of the softmax; the larger it is, the sharper the recall. */
+    private final float beta;
+    /** The amount of patterns taking part in one update, or 0 for all of them. */
+    private final int topK;
+    /** The stored patterns as 1.0f and -1.0f values, one row per pattern in row-major order. */
+    private float[] patterns;
+    /** The packed stored patterns in the order of the rows of the pattern matrix. */
+    private PackedPattern[] packedPatterns;
+    /** The amount of stored patterns. */
+    private int patternsNum;
+    /** An index of the packed stored patterns to their rows in the pattern matrix. */
+    private final HashMap<PackedPattern, Integer> attractors;
+
+    /**
+     * Initializes the network for letters of the given dimensions with the default inverse
+     * temperature and the exact update over all stored patterns.
+     *
+     * @param rows  The amount of <strong>rows</strong> in the letters.
+     * @param cols  The amount of <strong>columns</strong> in the letters.
+     */
+    public ModernHopfieldNN(int rows, int cols) {
+        this(rows, cols, DEFAULT_BETA, 0);
+    }
+
+    /**
+     * Initializes the network for letters of the given dimensions.
+     *
+     * @param rows  The amount of <strong>rows</strong> in the letters.
+     * @param cols  The amount of <strong>columns</strong> in the letters.
+     * @param beta  The inverse temperature of the softmax. Must be positive.
+     * @param topK  The amount of patterns taking part in one update, or 0 for all of them.
+     */
+    public ModernHopfieldNN(int rows, int cols, float beta, int topK) {
+        if (rows <= 0 || cols <= 0)
+            throw new IllegalArgumentException("Letter dimensions must be positive instead of " + rows + "x" + cols);
+        if (!(beta > 0.0f))
+            throw new IllegalArgumentException("Beta must be positive instead of " + beta);
+        if (topK < 0)
+            throw new IllegalArgumentException("Top k must not be negative instead of " + topK);
+
+        this.rows = rows;
+        this.cols = cols;
+        this.size = rows * cols;
+        this.beta = beta;
+        this.topK = topK;
+
+        patterns = new float[INITIAL_CAPACITY * size];
+        packedPatterns = new PackedPattern[INITIAL_CAPACITY];
+        attractors = new HashMap<>();
+    }
+
+    @Override
+    public int getRowsNum() {
+        return rows;
+    }
+
+    @Override
+    public int getColsNum() {
+        return cols;
+    }
+
+    /**
+     * Returns the inverse temperature of the softmax.
+     * @return the inverse temperature of the softmax.
+     */
+    public float getBeta() {
+        return beta;
+    }
+
+    /**
+     * Returns the amount of patterns taking part in one update, or 0 for all of them.
+     * @return the amount of patterns taking part in one update.
+     */
+    public int getTopK() {
+        return topK;
+    }
+
+    /**
+     * Returns the amount of stored patterns.
+     * @return the amount of stored patterns.
+     */
+    public int size() {
+        return patternsNum;
+    }
+
+    /**
+     * Appends the letter as a new row of the pattern matrix, growing it when it is full.
+     *
+     * @param letter    A <strong>letter</strong> that will be stored.
+     */
+    @Override
+    public void addLetter(Letter letter) {
+        checkLetter(letter);
+
+        PackedPattern pattern = letter.toPacked();
+        if (attractors.containsKey(pattern))
+            return;
+
+        if (patternsNum == packedPatterns.length) {
+            int capacity = 2 * packedPatterns.length;
+            patterns = Arrays.copyOf(patterns, capacity * size);
+            packedPatterns = Arrays.copyOf(packedPatterns, capacity);
+        }
+
+        for (int i = 0; i < size; i++)
+            patterns[patternsNum * size + i] = pattern.getState(i);
+        packedPatterns[patternsNum] = pattern;
+        attractors.put(pattern, patternsNum);
+        patternsNum++;
+    }
+
+    /**
+     * Removes the letter by moving the last row of the pattern matrix into its place.
+     *
+     * @param letter    A <strong>letter</strong> that will be removed.
+     */
+    @Override
+    public void removeLetter(Letter letter) {
+        Integer row = attractors.remove(letter.toPacked());
+        if (row == null)
+            return;
+
+        int last = --patternsNum;
+        if (row != last) {
+            System.arraycopy(patterns, last * size, patterns, row * size, size);
+            packedPatterns[row] = packedPatterns[last];
+            attractors.put(packedPatterns[row], row);
+        }
+        packedPatterns[last] = null;
+    }
+
+    /**
+     * Given an input letter, the method predicts the closest matching stored letter.
+     *
+     * @param inputLetter   The Letter object that needs to be predicted (matched to one of the stored letters).
+     * @return Returns a Letter object that represents the predicted closest match to the input letter,
+     * or null if it was not recognized within 100 iterations.
+     */
+    @Override
+    public Letter predict(Letter inputLetter) {
+        checkLetter(inputLetter);
+        PackedPattern output = predict(inputLetter.toPacked(), 100);
+        return (output == null) ? null : new Letter(rows, cols, output);
+    }
+
+    /**
+     * Runs the continuous update from the packed input pattern until the signs of the state
+     * form a stored pattern, the signs stop changing or maxIterations steps are done.
+     *
+     * @param inputPattern  The packed pattern that needs to be predicted (matched to one of the stored letters).
+     * @param maxIterations The maximum number of update steps.
+     * @return Returns a copy of the packed stored pattern the input converged to. If no match is
+     * found within the specified number of iterations, returns null.
+     */
+    @Override
+    public PackedPattern predict(PackedPattern inputPattern, int maxIterations) {
+        if (inputPattern.size() != size)
+            throw new IllegalArgumentException("Size of pattern must be " + size + " instead of " + inputPattern.size());
+        if (patternsNum == 0)
+            return null;
+
+        int selectedNum = (topK == 0) ? patternsNum : Math.min(topK, patternsNum);
+        int[] selected = new int[selectedNum];
+        float[] scores = new float[selectedNum];
+        float[] state = new float[size];
+        PackedPattern signs = new PackedPattern(inputPattern);
+        PackedPattern nextSigns = new PackedPattern(size);
+
+        for (int iteration = 0; iteration < maxIterations; iteration++) {
+            if (iteration == 0)
+                selectPacked(inputPattern, selected, scores);
+            else
+                rescore(state, selected, scores);
+
+            update(selected, scores, state);
+
+            for (int i = 0; i < size; i++)
+                nextSigns.set(i, state[i] >= 0.0f);
+
+            // The signs belong to this call and equal the stored pattern, so they are returned
+            // instead of the stored pattern itself, which is a key of the attractor index.
+            if (attractors.containsKey(nextSigns))
+                return nextSigns;
+            if (nextSigns.equals(signs))
+                return null;
+
+            signs.copyFrom(nextSigns);
+        }
+        return null;
+    }
+
+    /**
+     * Finds the stored patterns with the largest overlaps with the bipolar packed state,
+     * counting each overlap from the Hamming distance of the packed words.
+     *
+     * @param state     The packed state.
+     * @param selected  The array the rows of the selected patterns are written to, the largest overlap first.
+     * @param scores    The array the overlaps of the selected patterns are written to.
+     */
+    private void selectPacked(PackedPattern state, int[] selected, float[] scores) {
+        int selectedNum = 0;
+        for (int p = 0; p < patternsNum; p++)
+            selectedNum = insert(p, state.overlap(packedPatterns[p]), selected, scores, selectedNum);
+    }
+
+    /**
+     * Counts the overlaps of the selected patterns with the continuous state and sorts the
+     * selection by them again. Only the selected rows are read, so this costs k dot products.
+     *
+     * @param state     The state.
+     * @param selected  The rows of the selected patterns, sorted again with the largest overlap first.
+     * @param scores    The array the overlaps of the selected patterns are written to.
+     */
+    private void rescore(float[] state, int[] selected, float[] scores) {
+        int selectedNum = 0;
+        for (int j = 0; j < selected.length; j++) {
+            int row = selected[j];
+            int offset = row * size;
+            float overlap = 0.0f;
+            for (int i = 0; i < size; i++)
+                overlap += patterns[offset + i] * state[i];
+
+            // The first j slots hold the rows already rescored, so the insertion never overwrites a row still to be read.
+            selectedNum = insert(row, overlap, selected, scores, selectedNum);
+        }
+    }
+
+    /**
+     * Inserts the pattern into the selection sorted by overlap if it is among the largest ones.
+     *
+     * @param row           The row of the pattern.
+     * @param score         The overlap of the pattern.
+     * @param selected      The rows of the selected patterns.
+     * @param scores        The overlaps of the selected patterns.
+     * @param selectedNum   The amount of patterns selected so far.
+     * @return the amount of selected patterns after the insertion.
+     */
+    private static int insert(int row, float score, int[] selected, float[] scores, int selectedNum) {
+        int position = selectedNum;
+        if (position == selected.length) {
+            if (score <= scores[position - 1])
+                return selectedNum;
+            position--;
+        } else {
+            selectedNum++;
+        }
+
+        while (position > 0 && scores[position - 1] < score) {
+            selected[position] = selected[position - 1];
+            scores[position] = scores[position - 1];
+            position--;
+        }
+        selected[position] = row;
+        scores[position] = score;
+        return selectedNum;
+    }
+
+    /**
+     * Writes the average of the selected patterns weighted by the softmax of their overlaps into the state.
+     *
+     * @param selected  The rows of the selected patterns, the largest overlap first.
+     * @param scores    The overlaps of the selected patterns.
+     * @param state     The array the new state is written to.
+     */
+    private void update(int[] selected, float[] scores, float[] state) {
+        float max = scores[0];
+        float sum = 0.0f;
+        for (int j = 0; j < selected.length; j++) {
+            scores[j] = (float) Math.exp(beta * (scores[j] - max));
+            sum += scores[j];
+        }
+
+        Arrays.fill(state, 0.0f);
+        for (int j = 0; j < selected.length; j++) {
+            float attention = scores[j] / sum;
+            if (attention == 0.0f)
+                break;
+
+            int offset = selected[j] * size;
+            for (int i = 0; i < size; i++)
+                state[i] += attention * patterns[offset + i];
+        }
+    }
+
+    /**
+     * Checks that the <strong>letter</strong> has the dimensions of the network.
+     *
+     * @param letter    A letter to be checked.
+     */
+    private void checkLetter(Letter letter) {
+        if (letter.getRowsNum() != rows || letter.getColsNum() != cols)
+            throw new IllegalArgumentException("Letter dimensions must be " + rows + "x" + cols + " instead of "
+                    + letter.getRowsNum() + "x" + letter.getColsNum());
+    }
+}
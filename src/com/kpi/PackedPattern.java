@@ -0,0 +1,244 @@
+package com.kpi;
+
+import java.util.Arrays;
+
+/**
+ * A PackedPattern object.
+ * A bipolar pattern of neuron states where each state takes one bit: a set bit
+ * stands for 1 and a cleared bit stands for -1. Bits are stored in a long array,
+ * 64 states per element.
+ * <p>
+ * The pattern is mutable, but its equals and hashCode depend on the states, so a pattern
+ * must not be changed while it is a key of a hash map. The stored patterns of the networks
+ * are such keys; they are only handed out as copies.
+ */
+public class PackedPattern {
+    /** The amount of <strong>bits</strong> in one element of the words array. */
+    private static final int WORD_SIZE = Long.SIZE;
+    /** The amount of <strong>states</strong> in the pattern. */
+    private final int size;
+    /** An array that stores the <strong>states</strong> as bits. */
+    private final long[] words;
+
+    /**
+     * Initializes a pattern of the given size. All states are set to -1.
+     *
+     * @param size  The amount of <strong>states</strong> in the pattern.
+     */
+    public PackedPattern(int size) {
+        if (size <= 0)
+            throw new IllegalArgumentException("Size of pattern must be positive instead of " + size);
+
+        this.size = size;
+        this.words = new long[wordsNum(size)];
+    }
+
+    /**
+     * Initializes a copy of the passed pattern.
+     *
+     * @param pattern   A <strong>pattern</strong> to be copied.
+     */
+    public PackedPattern(PackedPattern pattern) {
+        this.size = pattern.size;
+        this.words = pattern.words.clone();
+    }
+
+    /**
+     * Initializes a pattern of the given size from already packed words.
+     *
+     * @param size  The amount of <strong>states</strong> in the pattern.
+     * @param words An array that stores the <strong>states</strong> as bits. It is copied.
+     */
+    public PackedPattern(int size, long[] words) {
+        this(size);
+        if (words.length != this.words.length)
+            throw new IllegalArgumentException("Amount of words must be " + this.words.length + " instead of " + words.length);
+
+        System.arraycopy(words, 0, this.words, 0, words.length);
+        clearTail();
+    }
+
+    /**
+     * Packs a vector of states. Positive values become 1, all others become -1.
+     *
+     * @param vector    The vector of states to be packed.
+     * @return The packed pattern.
+     */
+    public static PackedPattern fromVector(float[] vector) {
+        PackedPattern pattern = new PackedPattern(vector.length);
+        for (int i = 0; i < vector.length; i++)
+            if (vector[i] > 0.0f)
+                pattern.words[i / WORD_SIZE] |= 1L << (i % WORD_SIZE);
+
+        return pattern;
+    }
+
+    /**
+     * Returns the amount of words needed to store the given amount of states.
+     *
+     * @param size  The amount of <strong>states</strong>.
+     * @return the amount of words needed to store the states.
+     */
+    public static int wordsNum(int size) {
+        return (size + WORD_SIZE - 1) / WORD_SIZE;
+    }
+
+    /**
+     * Returns the amount of states in the pattern.
+     * @return the amount of states in the pattern.
+     */
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns true if the state at the given <strong>index</strong> is 1 and false if it is -1.
+     *
+     * @param index The index of the state.
+     * @return true if the state is 1 and false if it is -1.
+     */
+    public boolean get(int index) {
+        return (words[index / WORD_SIZE] & (1L << (index % WORD_SIZE))) != 0;
+    }
+
+    /**
+     * Returns the state at the given <strong>index</strong> as 1.0f or -1.0f.
+     *
+     * @param index The index of the state.
+     * @return the state at the given index.
+     */
+    public float getState(int index) {
+        return get(index) ? 1.0f : -1.0f;
+    }
+
+    /**
+     * Sets the state at the given <strong>index</strong>.
+     *
+     * @param index     The index of the state.
+     * @param positive  True to set the state to 1, false to set it to -1.
+     */
+    public void set(int index, boolean positive) {
+        if (positive)
+            words[index / WORD_SIZE] |= 1L << (index % WORD_SIZE);
+        else
+            words[index / WORD_SIZE] &= ~(1L << (index % WORD_SIZE));
+    }
+
+    /**
+     * Copies all states of the passed pattern into this one.
+     *
+     * @param pattern   A <strong>pattern</strong> of the same size to be copied.
+     */
+    public void copyFrom(PackedPattern pattern) {
+        checkSize(pattern);
+        System.arraycopy(pattern.words, 0, words, 0, words.length);
+    }
+
+    /**
+     * Unpacks the states into the <strong>vector</strong> as 1.0f and -1.0f values.
+     *
+     * @param vector    The array the states are written to. Must have the size of the pattern.
+     */
+    public void toVector(float[] vector) {
+        if (vector.length != size)
+            throw new IllegalArgumentException("Size of vector must be " + size + " instead of " + vector.length);
+
+        for (int i = 0; i < size; i++)
+            vector[i] = getState(i);
+    }
+
+    /**
+     * Returns one packed word of the pattern: bit b of word w is the state 64*w + b.
+     *
+     * @param index The index of the word.
+     * @return the packed word.
+     */
+    public long getWord(int index) {
+        return words[index];
+    }
+
+    /**
+     * Returns the packed words of the pattern. The array is shared with the pattern, so
+     * writing into it changes the pattern. Only the owner of a pattern may write into it,
+     * like the recall writing the signs of the fields into its working states, and the bits
+     * after the last state must stay cleared. The words of a stored pattern, or of any other
+     * pattern used as a map key, must not be modified.
+     * @return the packed words of the pattern.
+     */
+    long[] words() {
+        return words;
+    }
+
+    /**
+     * Counts the states that differ between this pattern and the passed one.
+     *
+     * @param pattern   A <strong>pattern</strong> of the same size to compare with.
+     * @return The Hamming distance between the patterns.
+     */
+    public int hammingDistance(PackedPattern pattern) {
+        checkSize(pattern);
+
+        int distance = 0;
+        for (int i = 0; i < words.length; i++)
+            distance += Long.bitCount(words[i] ^ pattern.words[i]);
+
+        return distance;
+    }
+
+    /**
+     * Calculates the overlap (dot product of bipolar states) between this pattern and the passed one.
+     *
+     * @param pattern   A <strong>pattern</strong> of the same size to compare with.
+     * @return The overlap between the patterns, from -size to size.
+     */
+    public int overlap(PackedPattern pattern) {
+        return size - 2 * hammingDistance(pattern);
+    }
+
+    /**
+     * Checks that the passed <strong>pattern</strong> has the same size as this one.
+     *
+     * @param pattern   A pattern to be checked.
+     */
+    private void checkSize(PackedPattern pattern) {
+        if (pattern.size != size)
+            throw new IllegalArgumentException("Size of pattern must be " + size + " instead of " + pattern.size);
+    }
+
+    /**
+     * Clears the unused bits of the last word, so equal patterns always have equal words.
+     */
+    private void clearTail() {
+        int tail = size % WORD_SIZE;
+        if (tail != 0)
+            words[words.length - 1] &= (1L << tail) - 1;
+    }
+
+    /**
+     * Compares this PackedPattern object with another object to determine if they are equal.
+     * Two patterns are considered equal if they have the same size and the same states.
+     *
+     * @param o The object to compare with this PackedPattern.
+     * @return Returns true if the objects are equal, otherwise false.
+     */
+    @Override
+    public boolean equals(Object o) {
+        if (this == o)
+            return true;
+        if (!(o instanceof PackedPattern))
+            return false;
+
+        PackedPattern pattern = (PackedPattern) o;
+        return size == pattern.size && Arrays.equals(words, pattern.words);
+    }
+
+    /**
+     * Computes the hash code for the PackedPattern object based on its states.
+     *
+     * @return Returns an int hash code value for the PackedPattern object.
+     */
+    @Override
+    public int hashCode() {
+        return 31 * size + Arrays.hashCode(words);
+    }
+}
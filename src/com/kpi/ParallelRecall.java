@@ -0,0 +1,142 @@
+package com.kpi;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.Future;
+import java.util.concurrent.RejectedExecutionException;
+import java.util.concurrent.ThreadFactory;
+import java.util.concurrent.ThreadPoolExecutor;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A ParallelRecall object.
+ * Spreads recall requests to one trained model over a fixed pool of worker threads.
+ * The queue of waiting requests is bounded: when it is full, the submitting thread
+ * runs the request itself, which slows producers down to the speed of the workers.
+ * Once the service is closed, new requests are rejected with a RejectedExecutionException.
+ */
+public class ParallelRecall implements AutoCloseable {
+    /** The maximum amount of letters in one task of predictAll. */
+    private static final int CHUNK_SIZE = 256;
+    /** The maximum amount of iterations of one recall. */
+    private static final int MAX_ITERATIONS = 100;
+    /** The trained <strong>model</strong> shared by all workers. */
+    private final TrainedModel model;
+    /** The pool of worker threads. */
+    private final ThreadPoolExecutor executor;
+
+    /**
+     * Initializes a service with one worker per available processor and a queue
+     * of 4 waiting tasks per worker.
+     *
+     * @param model The trained <strong>model</strong> shared by all workers.
+     */
+    public ParallelRecall(TrainedModel model) {
+        this(model, Runtime.getRuntime().availableProcessors(), 4 * Runtime.getRuntime().availableProcessors());
+    }
+
+    /**
+     * Initializes a service with the given amount of workers and queue capacity.
+     *
+     * @param model         The trained <strong>model</strong> shared by all workers.
+     * @param threadsNum    The amount of worker threads.
+     * @param queueCapacity The maximum amount of tasks waiting for a worker.
+     */
+    public ParallelRecall(TrainedModel model, int threadsNum, int queueCapacity) {
+        if (threadsNum <= 0 || queueCapacity <= 0)
+            throw new IllegalArgumentException("Amount of threads and queue capacity must be positive.");
+
+        this.model = model;
+
+        AtomicInteger threadId = new AtomicInteger();
+        ThreadFactory threadFactory = runnable -> {
+            Thread thread = new Thread(runnable, "hopfield-recall-" + threadId.incrementAndGet());
+            thread.setDaemon(true);
+            return thread;
+        };
+        this.executor = new ThreadPoolExecutor(threadsNum, threadsNum, 0L, TimeUnit.MILLISECONDS,
+                new ArrayBlockingQueue<>(queueCapacity), threadFactory, ParallelRecall::rejected);
+    }
+
+    /**
+     * Runs a task that did not fit into the queue in the submitting thread, or rejects it
+     * if the service is closed. The default CallerRunsPolicy would silently drop the task
+     * of a closed service, and its future would never complete.
+     *
+     * @param task      The <strong>task</strong> that did not fit into the queue.
+     * @param executor  The pool of worker threads.
+     */
+    private static void rejected(Runnable task, ThreadPoolExecutor executor) {
+        if (executor.isShutdown())
+            throw new RejectedExecutionException("The recall service is closed.");
+
+        task.run();
+    }
+
+    /**
+     * Returns the trained model shared by all workers.
+     * @return the trained model shared by all workers.
+     */
+    public TrainedModel getModel() {
+        return model;
+    }
+
+    /**
+     * Submits one letter for recall. Blocks the caller (by running the recall in its thread)
+     * if the queue is full.
+     *
+     * @param inputLetter   The Letter object that needs to be predicted.
+     * @return A future of the predicted letter, which is null if the letter was not recognized.
+     * @throws RejectedExecutionException if the service is closed.
+     */
+    public Future<Letter> submit(Letter inputLetter) {
+        return executor.submit(() -> model.predict(inputLetter));
+    }
+
+    /**
+     * Predicts all letters, split into chunks that workers recall with batched passes,
+     * and waits for the results.
+     *
+     * @param inputLetters  The Letter objects that need to be predicted.
+     * @return Returns the predicted letters in the order of the input letters, with null for
+     * letters that were not recognized.
+     * @throws InterruptedException if the calling thread is interrupted while waiting.
+     * @throws RejectedExecutionException if the service is closed.
+     */
+    public List<Letter> predictAll(List<Letter> inputLetters) throws InterruptedException {
+        int chunkSize = Math.max(1, Math.min(CHUNK_SIZE,
+                (inputLetters.size() + executor.getCorePoolSize() - 1) / executor.getCorePoolSize()));
+
+        List<Future<List<Letter>>> chunks = new ArrayList<>();
+        for (int first = 0; first < inputLetters.size(); first += chunkSize) {
+            List<Letter> chunk = inputLetters.subList(first, Math.min(first + chunkSize, inputLetters.size()));
+            chunks.add(executor.submit(() -> model.predictBatch(chunk, MAX_ITERATIONS)));
+        }
+
+        List<Letter> outputLetters = new ArrayList<>(inputLetters.size());
+        try {
+            for (Future<List<Letter>> chunk : chunks)
+                outputLetters.addAll(chunk.get());
+        } catch (ExecutionException e) {
+            throw new IllegalStateException("Recall failed.", e.getCause());
+        }
+        return outputLetters;
+    }
+
+    /**
+     * Stops accepting new requests and waits for the submitted ones to finish.
+     */
+    @Override
+    public void close() {
+        executor.shutdown();
+        try {
+            executor.awaitTermination(Long.MAX_VALUE, TimeUnit.NANOSECONDS);
+        } catch (InterruptedException e) {
+            executor.shutdownNow();
+            Thread.currentThread().interrupt();
+        }
+    }
+}
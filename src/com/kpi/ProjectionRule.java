@@ -0,0 +1,79 @@
+package com.kpi;
+
+import java.util.Arrays;
+
+/**
+ * The projection (pseudo-inverse) learning rule: the weights are the orthogonal projection
+ * onto the space spanned by the stored patterns, W = X * X<sup>+</sup>, so every stored
+ * pattern satisfies W * x = x exactly, however correlated the patterns are. A network with
+ * N neurons stores up to about N / 2 patterns with good basins of attraction, and up to N
+ * patterns as fixed points.
+ * <p>
+ * The projection is built incrementally, as in the Greville update of the pseudo-inverse:
+ * for a new pattern x the residual r = x - W * x is the part of x not covered by the stored
+ * patterns, and W grows by r * r<sup>T</sup> / (r<sup>T</sup> * r). No matrix is ever inverted.
+ * The weight store keeps a zero diagonal for recall, so the rule keeps the diagonal of the
+ * projection itself. A pattern that is a linear combination of the stored ones does not change
+ * the weights. Patterns cannot be removed incrementally, so removing one retrains the network.
+ */
+public class ProjectionRule implements LearningRule {
+    /** The relative squared residual below which a pattern is treated as already stored. */
+    private static final float EPSILON = 1e-4f;
+    /** The diagonal of the projection, which the weight store does not keep. */
+    private float[] diagonal = new float[0];
+    /** The buffer for the product of the weights and a pattern, reused between updates. */
+    private float[] fields = new float[0];
+    /** The buffer for the residual of a pattern, reused between updates. */
+    private float[] residual = new float[0];
+
+    @Override
+    public void reset(WeightStore weights) {
+        weights.clear();
+        resize(weights.size());
+        Arrays.fill(diagonal, 0.0f);
+    }
+
+    @Override
+    public void learn(WeightStore weights, PackedPattern pattern) {
+        int size = weights.size();
+        if (diagonal.length != size)
+            resize(size);
+
+        weights.multiply(pattern, fields);
+
+        float norm = 0.0f;
+        for (int i = 0; i < size; i++) {
+            float state = pattern.getState(i);
+            residual[i] = state - fields[i] - diagonal[i] * state;
+            norm += residual[i] * residual[i];
+        }
+        if (norm <= EPSILON * size)
+            return;
+
+        weights.addOuterProduct(residual, 1.0f/norm);
+        for (int i = 0; i < size; i++)
+            diagonal[i] += residual[i] * residual[i] / norm;
+    }
+
+    /**
+     * Allocates the buffers of the rule for the given number of neurons. The diagonal is cleared.
+     *
+     * @param size  The number of neurons.
+     */
+    private void resize(int size) {
+        diagonal = new float[size];
+        fields = new float[size];
+        residual = new float[size];
+    }
+
+    /**
+     * Tells whether the rule can train the given weight store: it adds outer products of real vectors.
+     *
+     * @param weights   The store of the <strong>weights</strong> to be trained.
+     * @return true if the store supports outer products of vectors.
+     */
+    @Override
+    public boolean supports(WeightStore weights) {
+        return weights.supportsVectorProducts();
+    }
+}
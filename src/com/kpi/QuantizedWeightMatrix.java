@@ -0,0 +1,275 @@
+package com.kpi;
+
+import java.util.Arrays;
+
+/**
+ * A QuantizedWeightMatrix object.
+ * A square weight matrix of a Hebbian network that stores integer counts instead of floats.
+ * Every Hebbian weight is a sum of products of 1 and -1 multiplied by one common unit
+ * (1/N), so the matrix keeps the sums as bytes, switches to shorts once a count no longer
+ * fits into a byte, and multiplies by the unit only when a weight or a local field is read.
+ * <p>
+ * The local fields of a bipolar pattern are accumulated as ints and are therefore exact:
+ * the signs of the fields, and so the recall, are the same as with float weights, while
+ * the matrix takes four (or two) times less memory. Only outer products of bipolar patterns
+ * scaled by a whole multiple of the unit can be added, so the matrix serves the Hebbian rule only;
+ * the rules that add outer products of real vectors do not support it, and a network rejects them.
+ */
+public class QuantizedWeightMatrix implements WeightStore {
+    /** The amount of <strong>rows</strong> (and columns) in the matrix. */
+    private final int size;
+    /** The counts in row-major order while they fit into a byte, otherwise null. */
+    private byte[] bytes;
+    /** The counts in row-major order once they do not fit into a byte, otherwise null. */
+    private short[] shorts;
+    /** The largest absolute value of a count. */
+    private int maxCount;
+    /** The weight of one count; 0.0f until the first outer product is added. */
+    private float unit;
+
+    /**
+     * Initializes a square matrix of the given size with all weights set to 0.0f.
+     *
+     * @param size  The amount of <strong>rows</strong> (and columns) in the matrix.
+     */
+    public QuantizedWeightMatrix(int size) {
+        if (size <= 0)
+            throw new IllegalArgumentException("Size of weight matrix must be positive instead of " + size);
+
+        long weightsNum = (long) size * size;
+        if (weightsNum > Integer.MAX_VALUE - 8)
+            throw new IllegalArgumentException("Size of weight matrix is too large for one array: " + size);
+
+        this.size = size;
+        this.bytes = new byte[(int) weightsNum];
+    }
+
+    /**
+     * Initializes a copy of the passed matrix.
+     *
+     * @param matrix    A <strong>matrix</strong> to be copied.
+     */
+    public QuantizedWeightMatrix(QuantizedWeightMatrix matrix) {
+        this.size = matrix.size;
+        this.bytes = (matrix.bytes != null) ? matrix.bytes.clone() : null;
+        this.shorts = (matrix.shorts != null) ? matrix.shorts.clone() : null;
+        this.maxCount = matrix.maxCount;
+        this.unit = matrix.unit;
+    }
+
+    @Override
+    public QuantizedWeightMatrix copy() {
+        return new QuantizedWeightMatrix(this);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the amount of bytes taken by one stored count, 1 or 2.
+     * @return the amount of bytes taken by one stored count.
+     */
+    public int bytesPerWeight() {
+        return (bytes != null) ? Byte.BYTES : Short.BYTES;
+    }
+
+    /**
+     * Returns the count at the given position of the matrix.
+     *
+     * @param index The position of the count in row-major order.
+     * @return the count at the position.
+     */
+    private int count(int index) {
+        return (bytes != null) ? bytes[index] : shorts[index];
+    }
+
+    @Override
+    public float get(int row, int col) {
+        return count(row * size + col) * unit;
+    }
+
+    /**
+     * Sets all weights to 0.0f and returns to byte counts.
+     */
+    @Override
+    public void clear() {
+        if (bytes != null)
+            Arrays.fill(bytes, (byte) 0);
+        else
+            bytes = new byte[size * size];
+        shorts = null;
+        maxCount = 0;
+        unit = 0.0f;
+    }
+
+    /**
+     * Multiplies every weight by a <strong>scalar</strong> value. Only the unit changes,
+     * the counts stay the same. Later outer products must be scaled by a whole multiple of
+     * the new unit: after a scale by 1/2 a Hebbian product of the old unit adds 2 to the
+     * counts, while after a scale by 2 it can no longer be added.
+     *
+     * @param scalar    The scalar value every weight is multiplied by.
+     */
+    @Override
+    public void scale(float scalar) {
+        if (scalar == 0.0f)
+            clear();
+        else
+            unit *= scalar;
+    }
+
+    /**
+     * Adds the outer product of the bipolar <strong>pattern</strong> with itself, multiplied by
+     * the <strong>scale</strong>, to the off-diagonal weights. The first outer product sets the
+     * unit of the counts; every later one must be scaled by a whole multiple of the unit, usually
+     * the unit or the negated unit, so that each count changes by that whole number. The counts
+     * are widened to shorts before they can overflow.
+     *
+     * @param pattern   The pattern whose outer product is added. Must have the size of the matrix.
+     * @param scale     The scalar value every product is multiplied by.
+     * @throws IllegalArgumentException if the scale is not a whole multiple of the unit.
+     */
+    @Override
+    public void addOuterProduct(PackedPattern pattern, float scale) {
+        if (pattern.size() != size)
+            throw new IllegalArgumentException("Size of pattern must be " + size + " instead of " + pattern.size());
+        if (scale == 0.0f)
+            return;
+        if (unit == 0.0f)
+            unit = scale;
+
+        float ratio = scale / unit;
+        int step = Math.round(ratio);
+        if (step != ratio || Math.abs(step) > Short.MAX_VALUE)
+            throw new IllegalArgumentException("Scale of a quantized outer product must be a whole multiple of the unit "
+                    + unit + " instead of " + scale);
+
+        if (maxCount + Math.abs(step) > Short.MAX_VALUE)
+            throw new IllegalStateException("Counts of quantized weights must not exceed " + Short.MAX_VALUE + ".");
+        if (bytes != null && maxCount + Math.abs(step) > Byte.MAX_VALUE)
+            widen();
+
+        long[] words = pattern.words();
+        int max = 0;
+        for (int i = 0; i < size; i++) {
+            boolean state = (words[i >>> 6] >>> i & 1L) != 0;
+            int rowOffset = i * size;
+
+            for (int j = i + 1; j < size; j++) {
+                int product = (state == ((words[j >>> 6] >>> j & 1L) != 0)) ? step : -step;
+                int value = count(rowOffset + j) + product;
+                if (bytes != null) {
+                    bytes[rowOffset + j] = (byte) value;
+                    bytes[j * size + i] = (byte) value;
+                } else {
+                    shorts[rowOffset + j] = (short) value;
+                    shorts[j * size + i] = (short) value;
+                }
+                max = Math.max(max, Math.abs(value));
+            }
+        }
+        maxCount = max;
+    }
+
+    /**
+     * Not supported: only outer products of bipolar patterns are sums of integer counts.
+     * supportsVectorProducts returns false, so the rules that need it are rejected by the network.
+     */
+    @Override
+    public void addOuterProduct(float[] vector, float scale) {
+        throw new UnsupportedOperationException("The quantized weight matrix stores outer products of bipolar patterns only.");
+    }
+
+    @Override
+    public boolean supportsVectorProducts() {
+        return false;
+    }
+
+    /**
+     * Replaces the byte counts with short counts.
+     */
+    private void widen() {
+        shorts = new short[bytes.length];
+        for (int i = 0; i < bytes.length; i++)
+            shorts[i] = bytes[i];
+        bytes = null;
+    }
+
+    /**
+     * Multiplies the weights by the bipolar <strong>pattern</strong>. The pattern is unpacked
+     * once into a per-thread scratch array of ints of 1 and -1, every local field is accumulated
+     * from the counts as an int by the field kernel and multiplied by the unit only at the end.
+     *
+     * @param pattern   The pattern to be multiplied. Must have the size of the matrix.
+     * @param result    The array the product is written to. Must have the size of the matrix.
+     */
+    @Override
+    public void multiply(PackedPattern pattern, float[] result) {
+        if (pattern.size() != size)
+            throw new IllegalArgumentException("Size of pattern must be " + size + " instead of " + pattern.size());
+        checkVector(result);
+
+        long[] words = pattern.words();
+        int[] states = ScratchBuffers.ints(size);
+        for (int j = 0; j < size; j++)
+            states[j] = ((words[j >>> 6] >>> j & 1L) != 0) ? 1 : -1;
+
+        for (int i = 0; i < size; i++) {
+            int sum = (bytes != null)
+                    ? FieldKernels.KERNEL.dot(bytes, i * size, states, size)
+                    : FieldKernels.KERNEL.dot(shorts, i * size, states, size);
+            result[i] = sum * unit;
+        }
+    }
+
+    @Override
+    public void multiply(float[] matrix, int stride, int cols, float[] result) {
+        if (cols > stride)
+            throw new IllegalArgumentException("Amount of columns must not exceed the stride " + stride + " instead of " + cols);
+        if (matrix.length < size * stride || result.length < size * stride)
+            throw new IllegalArgumentException("Matrices must have " + size + " rows of length " + stride + ".");
+
+        for (int i = 0; i < size; i++) {
+            int rowOffset = i * size;
+            int resOffset = i * stride;
+            Arrays.fill(result, resOffset, resOffset + cols, 0.0f);
+
+            for (int k = 0; k < size; k++) {
+                int count = count(rowOffset + k);
+                if (count != 0)
+                    FieldKernels.KERNEL.axpy(count * unit, matrix, k * stride, result, resOffset, cols);
+            }
+        }
+    }
+
+    /**
+     * Adds the given <strong>column</strong> of the weights, multiplied by the <strong>factor</strong>,
+     * to the <strong>result</strong> array. The weights are symmetric, so the column is read
+     * as the contiguous row with the same index.
+     *
+     * @param col       The index of the column to be added.
+     * @param factor    The scalar value every weight of the column is multiplied by.
+     * @param result    The array the column is added to. Must have the size of the matrix.
+     */
+    @Override
+    public void addColumn(int col, float factor, float[] result) {
+        checkVector(result);
+
+        float countFactor = factor * unit;
+        int rowOffset = col * size;
+        for (int i = 0; i < size; i++)
+            result[i] += count(rowOffset + i) * countFactor;
+    }
+
+    /**
+     * Checks that the <strong>vector</strong> has the size of the matrix.
+     *
+     * @param vector    The vector to be checked.
+     */
+    private void checkVector(float[] vector) {
+        if (vector.length != size)
+            throw new IllegalArgumentException("Size of vector must be " + size + " instead of " + vector.length);
+    }
+}
@@ -0,0 +1,227 @@
+package com.kpi;
+
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A RecallCache object.
+ * A bounded cache of recall results keyed by the packed input pattern, so an input that
+ * comes again costs one hash lookup instead of the whole recall. The cache is split into
+ * segments with their own locks and least-recently-used eviction, so threads recalling
+ * different inputs rarely wait for each other.
+ * <p>
+ * Every entry remembers the version of the weights it was calculated with. Changing the
+ * network invalidates the cache, which moves to the next version; a result calculated
+ * with an older version is never returned, even if it is stored after the invalidation.
+ * The cache keeps its own copies of the results and hands out copies, so a caller that
+ * modifies the patterns of a result cannot change what later hits get.
+ */
+public class RecallCache {
+    /** The amount of independently locked segments. */
+    private static final int SEGMENTS_NUM = 16;
+    /** The maximum amount of entries in the cache. */
+    private final int capacity;
+    /** The segments of the cache; an input belongs to the segment chosen by its hash. */
+    private final Segment[] segments;
+    /** The version of the weights the new entries are calculated with. */
+    private final AtomicLong version = new AtomicLong();
+    /** The amount of lookups that found a result. */
+    private final LongAdder hits = new LongAdder();
+    /** The amount of lookups that found no valid result. */
+    private final LongAdder misses = new LongAdder();
+    /** The amount of entries evicted to stay within the capacity. */
+    private final LongAdder evictions = new LongAdder();
+
+    /**
+     * Initializes an empty cache.
+     *
+     * @param capacity  The maximum amount of entries in the cache. Must be positive.
+     */
+    public RecallCache(int capacity) {
+        if (capacity <= 0)
+            throw new IllegalArgumentException("Capacity of cache must be positive instead of " + capacity);
+
+        this.capacity = capacity;
+        int segmentsNum = Math.min(SEGMENTS_NUM, capacity);
+        segments = new Segment[segmentsNum];
+        for (int s = 0; s < segmentsNum; s++)
+            segments[s] = new Segment(capacity / segmentsNum + (s < capacity % segmentsNum ? 1 : 0));
+    }
+
+    /**
+     * Returns the maximum amount of entries in the cache.
+     * @return the capacity of the cache.
+     */
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Returns the amount of entries in the cache.
+     * @return the amount of entries in the cache.
+     */
+    public int size() {
+        int size = 0;
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                size += segment.size();
+            }
+        }
+        return size;
+    }
+
+    /**
+     * Returns the amount of lookups that found a result.
+     * @return the amount of hits.
+     */
+    public long getHits() {
+        return hits.sum();
+    }
+
+    /**
+     * Returns the amount of lookups that found no valid result.
+     * @return the amount of misses.
+     */
+    public long getMisses() {
+        return misses.sum();
+    }
+
+    /**
+     * Returns the amount of entries evicted to stay within the capacity.
+     * @return the amount of evictions.
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Returns the share of the lookups that found a result.
+     * @return the hit rate from 0.0 to 1.0, or NaN if there were no lookups.
+     */
+    public double getHitRate() {
+        long hits = getHits();
+        long lookups = hits + getMisses();
+        return (lookups == 0) ? Double.NaN : (double) hits / lookups;
+    }
+
+    /**
+     * Drops all entries and moves the cache to the next version of the weights.
+     */
+    public void invalidate() {
+        version.incrementAndGet();
+        for (Segment segment : segments) {
+            synchronized (segment) {
+                segment.clear();
+            }
+        }
+    }
+
+    /**
+     * Returns the current version of the weights. It has to be read before a recall and
+     * passed to put with its result.
+     * @return the current version.
+     */
+    long version() {
+        return version.get();
+    }
+
+    /**
+     * Looks up the result of the recall of the input.
+     *
+     * @param input         The packed input pattern.
+     * @param maxIterations The maximum number of iterations of the recall.
+     * @return a copy of the cached result, or null if there is none for the current version.
+     */
+    RecallResult get(PackedPattern input, int maxIterations) {
+        Segment segment = segment(input);
+        Entry entry;
+        synchronized (segment) {
+            entry = segment.get(input);
+        }
+
+        if (entry == null || entry.version != version.get() || entry.maxIterations != maxIterations) {
+            misses.increment();
+            return null;
+        }
+        hits.increment();
+        return entry.result.copy();
+    }
+
+    /**
+     * Stores the result of the recall of the input, unless the cache was invalidated since
+     * the given version was read.
+     *
+     * @param input         The packed input pattern. It is copied.
+     * @param maxIterations The maximum number of iterations of the recall.
+     * @param result        The result of the recall. It is copied.
+     * @param version       The version read before the recall.
+     */
+    void put(PackedPattern input, int maxIterations, RecallResult result, long version) {
+        if (version != this.version.get())
+            return;
+
+        Segment segment = segment(input);
+        Entry entry = new Entry(result.copy(), maxIterations, version);
+        synchronized (segment) {
+            segment.put(new PackedPattern(input), entry);
+        }
+    }
+
+    /**
+     * Returns the segment the input belongs to.
+     *
+     * @param input The packed input pattern.
+     * @return the segment of the input.
+     */
+    private Segment segment(PackedPattern input) {
+        int hash = input.hashCode();
+        return segments[Math.floorMod(hash ^ (hash >>> 16), segments.length)];
+    }
+
+    @Override
+    public String toString() {
+        return "RecallCache{size=" + size() + ", capacity=" + capacity + ", hits=" + getHits()
+                + ", misses=" + getMisses() + ", evictions=" + getEvictions() + "}";
+    }
+
+    /**
+     * A cached result with the parameters it was calculated with.
+     */
+    private static final class Entry {
+        final RecallResult result;
+        final int maxIterations;
+        final long version;
+
+        Entry(RecallResult result, int maxIterations, long version) {
+            this.result = result;
+            this.maxIterations = maxIterations;
+            this.version = version;
+        }
+    }
+
+    /**
+     * One segment of the cache: a map in access order that drops its least recently used
+     * entry when it grows over its capacity. It is guarded by its own monitor.
+     */
+    private final class Segment extends LinkedHashMap<PackedPattern, Entry> {
+        private static final long serialVersionUID = 1L;
+
+        private final int capacity;
+
+        Segment(int capacity) {
+            super(16, 0.75f, true);
+            this.capacity = capacity;
+        }
+
+        @Override
+        protected boolean removeEldestEntry(Map.Entry<PackedPattern, Entry> eldest) {
+            if (size() <= capacity)
+                return false;
+
+            evictions.increment();
+            return true;
+        }
+    }
+}
@@ -0,0 +1,463 @@
+package com.kpi;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+import java.util.concurrent.CancellationException;
+
+/**
+ * A RecallEngine object.
+ * Runs the recall of the Hopfield network over a weight matrix and an attractor index
+ * of stored patterns. The engine keeps no state between calls, so it can be shared
+ * by many threads as long as the weights and the index are not modified meanwhile.
+ * The recall checks the interrupted flag of its thread every iteration, so it can be
+ * cancelled by interrupting the thread.
+ */
+final class RecallEngine {
+    /** The maximum amount of letters recalled together in one matrix-matrix pass. */
+    private static final int BATCH_SIZE = 256;
+    /** A matrix representing the weights between neurons. */
+    private final WeightStore weights;
+    /** An index of the packed stored letters. */
+    private final Map<PackedPattern, Letter> attractors;
+    /** The Hamming index of the stored patterns checked before the recall, or null. */
+    private final HammingIndex prefilter;
+    /** The cache of the results of single recalls, or null. */
+    private final RecallCache cache;
+
+    /**
+     * Initializes an engine over the given weights and attractor index. Both are used
+     * directly, not copied.
+     *
+     * @param weights       A matrix representing the <strong>weights</strong> between neurons.
+     * @param attractors    An index of the packed stored letters.
+     */
+    RecallEngine(WeightStore weights, Map<PackedPattern, Letter> attractors) {
+        this(weights, attractors, null);
+    }
+
+    /**
+     * Initializes an engine over the given weights, attractor index and Hamming index of the
+     * stored patterns. An input that has a single nearest stored pattern within the radius of
+     * the Hamming index is answered with it at once, without running the network. The indexes
+     * are used directly, not copied, and must hold the same patterns.
+     *
+     * @param weights       A matrix representing the <strong>weights</strong> between neurons.
+     * @param attractors    An index of the packed stored letters.
+     * @param prefilter     The Hamming index of the stored patterns, or null to always run the network.
+     */
+    RecallEngine(WeightStore weights, Map<PackedPattern, Letter> attractors, HammingIndex prefilter) {
+        this(weights, attractors, prefilter, null);
+    }
+
+    /**
+     * Initializes an engine that also looks the inputs of single recalls up in the cache
+     * before running them and stores their results in it. The owner of the engine must
+     * invalidate the cache whenever the weights or the stored patterns change.
+     *
+     * @param weights       A matrix representing the <strong>weights</strong> between neurons.
+     * @param attractors    An index of the packed stored letters.
+     * @param prefilter     The Hamming index of the stored patterns, or null to always run the network.
+     * @param cache         The cache of the recall results, or null.
+     */
+    RecallEngine(WeightStore weights, Map<PackedPattern, Letter> attractors, HammingIndex prefilter,
+                 RecallCache cache) {
+        this.weights = weights;
+        this.attractors = attractors;
+        this.prefilter = prefilter;
+        this.cache = cache;
+    }
+
+    /**
+     * Runs the packed input pattern through the network for a specified number of
+     * iterations (maxIterations), updating the neurons according to the update policy.
+     * The state is kept packed between iterations and looked up in the attractor index,
+     * so each check is one hash probe and the loop does not allocate.
+     *
+     * @param inputPattern  The packed pattern that needs to be predicted (matched to one of the stored letters).
+     * @param maxIterations The maximum number of iterations (sweeps over all neurons) to run the prediction process.
+     * @param updatePolicy  The order in which neurons are updated.
+     * @param random        The source of the neuron permutations for the random update policy.
+     * @param listener      The listener of the recall progress, or null.
+     * @return Returns the packed stored pattern the input converged to. If no match is found
+     * within the specified number of iterations, returns null.
+     */
+    PackedPattern predict(PackedPattern inputPattern, int maxIterations, UpdatePolicy updatePolicy, Random random,
+                          RecallListener listener) {
+        return recall(inputPattern, maxIterations, updatePolicy, random, listener).getPattern();
+    }
+
+    /**
+     * Runs the packed input pattern through the network like predict, and tells how the recall ended.
+     * The recall stops as soon as the state reaches a stored pattern, stops changing (a spurious
+     * fixed point) or returns to the state of two iterations before (a cycle), so such inputs
+     * do not run all maxIterations iterations. If the engine has a cache, an input recalled
+     * before is answered from it without running the recall or notifying the listener.
+     *
+     * @param inputPattern  The packed pattern that needs to be recalled.
+     * @param maxIterations The maximum number of iterations (sweeps over all neurons) to run the recall.
+     * @param updatePolicy  The order in which neurons are updated.
+     * @param random        The source of the neuron permutations for the random update policy.
+     * @param listener      The listener of the recall progress, or null.
+     * @return the result of the recall.
+     */
+    RecallResult recall(PackedPattern inputPattern, int maxIterations, UpdatePolicy updatePolicy, Random random,
+                        RecallListener listener) {
+        if (cache == null)
+            return recallUncached(inputPattern, maxIterations, updatePolicy, random, listener);
+
+        RecallResult result = cache.get(inputPattern, maxIterations);
+        if (result == null) {
+            long version = cache.version();
+            result = recallUncached(inputPattern, maxIterations, updatePolicy, random, listener);
+            cache.put(inputPattern, maxIterations, result, version);
+        }
+        return result;
+    }
+
+    /**
+     * Runs the recall without looking at the cache.
+     *
+     * @param inputPattern  The packed pattern that needs to be recalled.
+     * @param maxIterations The maximum number of iterations (sweeps over all neurons) to run the recall.
+     * @param updatePolicy  The order in which neurons are updated.
+     * @param random        The source of the neuron permutations for the random update policy.
+     * @param listener      The listener of the recall progress, or null.
+     * @return the result of the recall.
+     */
+    private RecallResult recallUncached(PackedPattern inputPattern, int maxIterations, UpdatePolicy updatePolicy,
+                                        Random random, RecallListener listener) {
+        PackedPattern nearest = nearestStored(inputPattern);
+        if (nearest != null)
+            return result(RecallStatus.STORED, new PackedPattern(nearest), 0, listener);
+
+        if (updatePolicy == UpdatePolicy.SYNCHRONOUS)
+            return recallSynchronous(inputPattern, maxIterations, listener);
+
+        return recallAsynchronous(inputPattern, maxIterations, updatePolicy, random, listener);
+    }
+
+    /**
+     * Predicts the closest matching stored letter for every input letter. The letters are
+     * stacked as columns of one state matrix, at most BATCH_SIZE at a time, and updated
+     * synchronously whatever the update policy is: each iteration is one cache-blocked
+     * matrix-matrix product. A column leaves the active set as soon as it reaches a stored
+     * pattern, a spurious fixed point or a cycle, so later iterations only multiply the
+     * letters that are still changing.
+     *
+     * @param inputLetters  The Letter objects that need to be predicted.
+     * @param maxIterations The maximum number of iterations to run the prediction process.
+     * @param listener      The listener of the recall progress, or null. It is called for every letter.
+     * @return Returns the predicted letters in the order of the input letters. A letter that
+     * was not recognized within the specified number of iterations is returned as null.
+     */
+    List<Letter> predictBatch(List<Letter> inputLetters, int maxIterations, RecallListener listener) {
+        int size = weights.size();
+        ArrayList<Letter> outputLetters = new ArrayList<>(Collections.nCopies(inputLetters.size(), null));
+
+        int batchSize = Math.min(BATCH_SIZE, inputLetters.size());
+        float[] states = new float[size * batchSize];
+        float[] fields = new float[size * batchSize];
+        PackedPattern[] patterns = new PackedPattern[batchSize];
+        PackedPattern[] previous = new PackedPattern[batchSize];
+        PackedPattern[] older = new PackedPattern[batchSize];
+        int[] indices = new int[batchSize];
+        for (int b = 0; b < batchSize; b++) {
+            patterns[b] = new PackedPattern(size);
+            previous[b] = new PackedPattern(size);
+            older[b] = new PackedPattern(size);
+        }
+
+        for (int first = 0; first < inputLetters.size(); first += batchSize) {
+            int active = 0;
+            for (int index = first; index < Math.min(first + batchSize, inputLetters.size()); index++) {
+                Letter inputLetter = inputLetters.get(index);
+                PackedPattern inputPattern = inputLetter.toPacked();
+
+                PackedPattern nearest = nearestStored(inputPattern);
+                if (nearest != null) {
+                    if (listener != null)
+                        listener.recallFinished(RecallStatus.STORED, 0);
+                    outputLetters.set(index, new Letter(inputLetter.getRowsNum(), inputLetter.getColsNum(), nearest));
+                    continue;
+                }
+
+                int b = active++;
+                patterns[b].copyFrom(inputPattern);
+                indices[b] = index;
+                for (int i = 0; i < size; i++)
+                    states[i * batchSize + b] = patterns[b].getState(i);
+            }
+
+            for (int iteration = 0; iteration < maxIterations && active > 0; iteration++) {
+                checkInterrupted();
+                weights.multiply(states, batchSize, active, fields);
+
+                for (int b = 0; b < active; ) {
+                    if (listener != null) {
+                        int flipped = 0;
+                        float energy = 0.0f;
+                        for (int i = 0; i < size; i++) {
+                            float field = fields[i * batchSize + b];
+                            energy -= 0.5f * states[i * batchSize + b] * field;
+                            if ((field >= 0.0f) != patterns[b].get(i))
+                                flipped++;
+                        }
+                        listener.iterationFinished(iteration + 1, flipped, energy);
+                    }
+
+                    PackedPattern pattern = older[b];
+                    older[b] = previous[b];
+                    previous[b] = patterns[b];
+                    patterns[b] = pattern;
+                    for (int i = 0; i < size; i++) {
+                        boolean positive = fields[i * batchSize + b] >= 0.0f;
+                        pattern.set(i, positive);
+                        states[i * batchSize + b] = positive ? 1.0f : -1.0f;
+                    }
+
+                    RecallStatus status = status(pattern, previous[b], (iteration > 0) ? older[b] : null);
+                    if (status == null) {
+                        b++;
+                        continue;
+                    }
+
+                    if (listener != null)
+                        listener.recallFinished(status, iteration + 1);
+                    if (status == RecallStatus.STORED) {
+                        Letter inputLetter = inputLetters.get(indices[b]);
+                        outputLetters.set(indices[b],
+                                new Letter(inputLetter.getRowsNum(), inputLetter.getColsNum(), pattern));
+                    }
+
+                    active--;
+                    for (int i = 0; i < size; i++) {
+                        states[i * batchSize + b] = states[i * batchSize + active];
+                        fields[i * batchSize + b] = fields[i * batchSize + active];
+                    }
+                    swap(patterns, b, active);
+                    swap(previous, b, active);
+                    swap(older, b, active);
+                    indices[b] = indices[active];
+                }
+            }
+
+            if (listener != null)
+                for (int b = 0; b < active; b++)
+                    listener.recallFinished(RecallStatus.TIMEOUT, maxIterations);
+        }
+        return outputLetters;
+    }
+
+    /**
+     * Runs the recall updating all neurons at once: every iteration calculates the local
+     * fields of the whole state and takes their signs as the new state. With symmetric
+     * weights such updates always end in a fixed point or a cycle of two states, so
+     * keeping the last two states is enough to notice that the recall will not reach
+     * a stored pattern; comparing packed states costs N/64 word comparisons.
+     *
+     * @param inputPattern  The packed pattern that needs to be recalled.
+     * @param maxIterations The maximum number of iterations to run the recall.
+     * @param listener      The listener of the recall progress, or null.
+     * @return the result of the recall.
+     */
+    private RecallResult recallSynchronous(PackedPattern inputPattern, int maxIterations, RecallListener listener) {
+        int size = weights.size();
+        PackedPattern state = new PackedPattern(inputPattern);
+        PackedPattern previous = new PackedPattern(size);
+        PackedPattern older = new PackedPattern(size);
+        float[] fields = new float[size];
+
+        for (int i = 0; i < maxIterations; i++) {
+            checkInterrupted();
+            weights.multiply(state, fields);
+
+            if (listener != null) {
+                // The fields of the old state are at hand, so its energy costs O(N) instead of another product.
+                int flipped = 0;
+                float energy = 0.0f;
+                for (int j = 0; j < size; j++) {
+                    energy -= 0.5f * state.getState(j) * fields[j];
+                    if ((fields[j] >= 0.0f) != state.get(j))
+                        flipped++;
+                }
+                listener.iterationFinished(i + 1, flipped, energy);
+            }
+
+            PackedPattern next = older;
+            older = previous;
+            previous = state;
+            state = next;
+            // The working states belong to this recall, so the kernel may write into their words.
+            FieldKernels.KERNEL.sign(fields, state.words(), size);
+
+            RecallStatus status = status(state, previous, (i > 0) ? older : null);
+            if (status != null)
+                return result(status, state, i + 1, listener);
+        }
+        return result(RecallStatus.TIMEOUT, state, maxIterations, listener);
+    }
+
+    /**
+     * Runs the recall updating neurons one by one in sequential or random order. The local
+     * fields are calculated once and then kept up to date: when a neuron flips, only its
+     * weight column is added to them, so a sweep costs O(N) plus O(N) per flip. A neuron
+     * with zero local field keeps its state. The energy of the network never grows, so the
+     * recall always reaches a fixed point and never cycles; if the fixed point is not a
+     * stored pattern, the recall ends at once.
+     *
+     * @param inputPattern  The packed pattern that needs to be recalled.
+     * @param maxIterations The maximum number of sweeps to run the recall.
+     * @param updatePolicy  The order in which neurons are updated, sequential or random.
+     * @param random        The source of the neuron permutations for the random update policy.
+     * @param listener      The listener of the recall progress, or null. The energy for it is kept
+     *                      up to date with every flip: flipping neuron i changes it by 2 * x<sub>i</sub> * h<sub>i</sub>.
+     * @return the result of the recall.
+     */
+    private RecallResult recallAsynchronous(PackedPattern inputPattern, int maxIterations,
+                                            UpdatePolicy updatePolicy, Random random, RecallListener listener) {
+        int size = weights.size();
+        PackedPattern state = new PackedPattern(inputPattern);
+        float[] fields = new float[size];
+        weights.multiply(state, fields);
+
+        float energy = 0.0f;
+        if (listener != null)
+            for (int i = 0; i < size; i++)
+                energy -= 0.5f * state.getState(i) * fields[i];
+
+        int[] order = new int[size];
+        for (int i = 0; i < size; i++)
+            order[i] = i;
+
+        for (int i = 0; i < maxIterations; i++) {
+            checkInterrupted();
+            if (updatePolicy == UpdatePolicy.RANDOM)
+                shuffle(order, random);
+
+            int flips = 0;
+            float sweepEnergy = energy;
+            for (int neuron : order) {
+                float field = fields[neuron];
+                if (field == 0.0f || (field > 0.0f) == state.get(neuron))
+                    continue;
+
+                energy -= 2.0f * Math.abs(field);
+                state.set(neuron, field > 0.0f);
+                weights.addColumn(neuron, field > 0.0f ? 2.0f : -2.0f, fields);
+                flips++;
+            }
+            if (listener != null)
+                listener.iterationFinished(i + 1, flips, sweepEnergy);
+
+            if (attractors.containsKey(state))
+                return result(RecallStatus.STORED, state, i + 1, listener);
+            if (flips == 0)
+                return result(RecallStatus.SPURIOUS, state, i + 1, listener);
+        }
+        return result(RecallStatus.TIMEOUT, state, maxIterations, listener);
+    }
+
+    /**
+     * Looks the input up in the Hamming index of the stored patterns.
+     *
+     * @param inputPattern  The packed input pattern.
+     * @return a copy of the only stored pattern nearest to the input within the radius of
+     * the index, or null if there is none, it is ambiguous or there is no index.
+     */
+    private PackedPattern nearestStored(PackedPattern inputPattern) {
+        if (prefilter == null)
+            return null;
+
+        PackedPattern nearest = prefilter.nearest(inputPattern);
+        return (nearest == null) ? null : new PackedPattern(nearest);
+    }
+
+    /**
+     * Tells whether the recall has ended after a synchronous update.
+     *
+     * @param state     The new state.
+     * @param previous  The state before the update.
+     * @param older     The state one update earlier, or null if there was none.
+     * @return the way the recall ended, or null if it goes on.
+     */
+    private RecallStatus status(PackedPattern state, PackedPattern previous, PackedPattern older) {
+        if (attractors.containsKey(state))
+            return RecallStatus.STORED;
+        if (state.equals(previous))
+            return RecallStatus.SPURIOUS;
+        if (older != null && state.equals(older))
+            return RecallStatus.CYCLE;
+
+        return null;
+    }
+
+    /**
+     * Builds the result of a finished recall, finding the stored pattern nearest to its
+     * final state, and reports the end of the recall to the listener. The result gets its own
+     * copy of the nearest pattern: the stored patterns are the keys of the attractor index and
+     * must not reach the callers.
+     *
+     * @param status        The way the recall ended.
+     * @param state         The final state, owned by the recall and not a stored pattern.
+     * @param iterations    The amount of iterations the recall did.
+     * @param listener      The listener of the recall progress, or null.
+     * @return the result of the recall.
+     */
+    private RecallResult result(RecallStatus status, PackedPattern state, int iterations, RecallListener listener) {
+        if (listener != null)
+            listener.recallFinished(status, iterations);
+        if (status == RecallStatus.STORED)
+            return new RecallResult(status, state, iterations, new PackedPattern(state), 0);
+
+        PackedPattern nearest = null;
+        int distance = -1;
+        for (PackedPattern pattern : attractors.keySet()) {
+            int patternDistance = state.hammingDistance(pattern);
+            if (nearest == null || patternDistance < distance) {
+                nearest = pattern;
+                distance = patternDistance;
+            }
+        }
+        return new RecallResult(status, state, iterations, (nearest != null) ? new PackedPattern(nearest) : null,
+                distance);
+    }
+
+    /**
+     * Swaps two elements of the <strong>array</strong>.
+     *
+     * @param array The array.
+     * @param i     The index of the first element.
+     * @param j     The index of the second element.
+     */
+    private static void swap(PackedPattern[] array, int i, int j) {
+        PackedPattern tmp = array[i];
+        array[i] = array[j];
+        array[j] = tmp;
+    }
+
+    /**
+     * Shuffles the <strong>array</strong> in place with the Fisher-Yates algorithm.
+     *
+     * @param array   The array to be shuffled.
+     * @param random    The source of the random swaps.
+     */
+    private static void shuffle(int[] array, Random random) {
+        for (int i = array.length - 1; i > 0; i--) {
+            int j = random.nextInt(i + 1);
+            int tmp = array[i];
+            array[i] = array[j];
+            array[j] = tmp;
+        }
+    }
+
+    /**
+     * Stops the recall if the current thread has been interrupted. The interrupted flag stays set.
+     */
+    private static void checkInterrupted() {
+        if (Thread.currentThread().isInterrupted())
+            throw new CancellationException("The recall was interrupted.");
+    }
+}
@@ -0,0 +1,29 @@
+package com.kpi;
+
+/**
+ * Receives the progress of the recalls of a Hopfield network, for example to collect metrics.
+ * <p>
+ * The methods are called on the recalling thread, in the middle of the recall loop, so they
+ * must be cheap and, when the network or model is used by several threads, thread-safe.
+ * Nothing is calculated for the listener while none is set. All methods do nothing by default.
+ */
+public interface RecallListener {
+    /**
+     * Called after every iteration (sweep over all neurons) of a recall.
+     *
+     * @param iteration The number of the iteration, starting from 1.
+     * @param flipped   The amount of neurons whose state the iteration changed.
+     * @param energy    The energy -1/2 * x<sup>T</sup> * W * x of the state the iteration started from.
+     */
+    default void iterationFinished(int iteration, int flipped, float energy) {
+    }
+
+    /**
+     * Called when a recall ends.
+     *
+     * @param status        The way the recall ended.
+     * @param iterations    The amount of iterations the recall did.
+     */
+    default void recallFinished(RecallStatus status, int iterations) {
+    }
+}
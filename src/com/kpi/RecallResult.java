@@ -0,0 +1,107 @@
+package com.kpi;
+
+/**
+ * A RecallResult object.
+ * The outcome of one recall of a Hopfield network: how the recall ended, the state it
+ * ended in, the number of iterations it took and the stored pattern nearest to that state.
+ */
+public final class RecallResult {
+    /** The way the recall ended. */
+    private final RecallStatus status;
+    /** The state the recall ended in. */
+    private final PackedPattern state;
+    /** The amount of iterations the recall did. */
+    private final int iterations;
+    /** The stored pattern at the smallest Hamming distance from the final state, or null if none is stored. */
+    private final PackedPattern nearest;
+    /** The Hamming distance between the final state and the nearest stored pattern. */
+    private final int distance;
+
+    /**
+     * Initializes the result of a recall.
+     *
+     * @param status        The way the recall ended.
+     * @param state         The <strong>state</strong> the recall ended in.
+     * @param iterations    The amount of iterations the recall did.
+     * @param nearest       The stored pattern nearest to the state, or null if none is stored.
+     * @param distance      The Hamming distance between the state and the nearest stored pattern.
+     */
+    RecallResult(RecallStatus status, PackedPattern state, int iterations, PackedPattern nearest, int distance) {
+        this.status = status;
+        this.state = state;
+        this.iterations = iterations;
+        this.nearest = nearest;
+        this.distance = distance;
+    }
+
+    /**
+     * Returns the way the recall ended.
+     * @return the way the recall ended.
+     */
+    public RecallStatus getStatus() {
+        return status;
+    }
+
+    /**
+     * Returns true if the recall reached a stored pattern.
+     * @return true if the recall reached a stored pattern.
+     */
+    public boolean isRecognized() {
+        return status == RecallStatus.STORED;
+    }
+
+    /**
+     * Returns the state the recall ended in. For a cycle it is the last state of the cycle.
+     * @return the state the recall ended in.
+     */
+    public PackedPattern getState() {
+        return state;
+    }
+
+    /**
+     * Returns the stored pattern the recall reached.
+     * @return the stored pattern the recall reached, or null if it was not recognized.
+     */
+    public PackedPattern getPattern() {
+        return isRecognized() ? state : null;
+    }
+
+    /**
+     * Returns the amount of iterations the recall did.
+     * @return the amount of iterations the recall did.
+     */
+    public int getIterations() {
+        return iterations;
+    }
+
+    /**
+     * Returns the stored pattern at the smallest Hamming distance from the final state.
+     * @return the nearest stored pattern, or null if no patterns are stored.
+     */
+    public PackedPattern getNearest() {
+        return nearest;
+    }
+
+    /**
+     * Returns the Hamming distance between the final state and the nearest stored pattern.
+     * @return the distance to the nearest stored pattern, or -1 if no patterns are stored.
+     */
+    public int getDistance() {
+        return distance;
+    }
+
+    /**
+     * Returns a copy of the result with its own copies of the state and the nearest pattern,
+     * so that changing the patterns of one does not change the other.
+     * @return the copy of the result.
+     */
+    RecallResult copy() {
+        return new RecallResult(status, new PackedPattern(state), iterations,
+                (nearest != null) ? new PackedPattern(nearest) : null, distance);
+    }
+
+    @Override
+    public String toString() {
+        return "RecallResult{status=" + status + ", iterations=" + iterations + ", distance=" + distance + "}";
+    }
+}
@@ -0,0 +1,15 @@
+package com.kpi;
+
+/**
+ * The way a recall of a Hopfield network ended.
+ */
+public enum RecallStatus {
+    /** The state reached one of the stored patterns. */
+    STORED,
+    /** The state reached a fixed point that is not a stored pattern. */
+    SPURIOUS,
+    /** The state started to repeat with a period of two iterations, which synchronous updates may do. */
+    CYCLE,
+    /** The maximum number of iterations was done without reaching a stored pattern. */
+    TIMEOUT
+}
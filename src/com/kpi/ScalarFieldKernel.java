@@ -0,0 +1,92 @@
+package com.kpi;
+
+import java.util.Arrays;
+
+/**
+ * The plain Java FieldKernel. It is used when the vector API is not available, and for
+ * the tails of the rows that do not fill a whole vector.
+ */
+final class ScalarFieldKernel implements FieldKernel {
+    @Override
+    public float dot(float[] a, int aOffset, float[] b, int length) {
+        float sum = 0.0f;
+        for (int j = 0; j < length; j++)
+            sum += a[aOffset + j] * b[j];
+
+        return sum;
+    }
+
+    @Override
+    public int dot(byte[] a, int aOffset, int[] b, int length) {
+        int sum = 0;
+        for (int j = 0; j < length; j++)
+            sum += a[aOffset + j] * b[j];
+
+        return sum;
+    }
+
+    @Override
+    public int dot(short[] a, int aOffset, int[] b, int length) {
+        int sum = 0;
+        for (int j = 0; j < length; j++)
+            sum += a[aOffset + j] * b[j];
+
+        return sum;
+    }
+
+    /**
+     * As every state is 1 or -1, each weight is either added to or subtracted from the sum,
+     * without a multiplication. The scratch array is not used.
+     */
+    @Override
+    public void multiplyBipolar(float[] weights, int size, long[] words, float[] scratch, float[] result) {
+        for (int i = 0; i < size; i++) {
+            int rowOffset = i * size;
+            float sum = 0.0f;
+
+            for (int j = 0; j < size; j++) {
+                float weight = weights[rowOffset + j];
+                sum += ((words[j >>> 6] >>> j & 1L) != 0) ? weight : -weight;
+            }
+            result[i] = sum;
+        }
+    }
+
+    @Override
+    public void axpy(float factor, float[] x, int xOffset, float[] y, int yOffset, int length) {
+        for (int j = 0; j < length; j++)
+            y[yOffset + j] += factor * x[xOffset + j];
+    }
+
+    @Override
+    public float dotAxpy(float[] a, int aOffset, float[] x, float factor, float[] y, int offset, int length) {
+        float sum = 0.0f;
+        for (int j = 0; j < length; j++) {
+            float weight = a[aOffset + j];
+            sum += weight * x[offset + j];
+            y[offset + j] += factor * weight;
+        }
+
+        return sum;
+    }
+
+    @Override
+    public void sign(float[] fields, long[] words, int length) {
+        Arrays.fill(words, 0L);
+        sign(fields, words, 0, length);
+    }
+
+    /**
+     * Sets the bits of the non-negative fields from the given position on. The bits must be cleared.
+     *
+     * @param fields    The local fields.
+     * @param words     The packed states.
+     * @param from      The first field.
+     * @param to        The field after the last one.
+     */
+    static void sign(float[] fields, long[] words, int from, int to) {
+        for (int j = from; j < to; j++)
+            if (fields[j] >= 0.0f)
+                words[j >>> 6] |= 1L << j;
+    }
+}
@@ -0,0 +1,48 @@
+package com.kpi;
+
+/**
+ * Reusable per-thread scratch arrays for the inner loops of the weight stores. A store can
+ * be multiplied by many threads at once, so it cannot keep a scratch array in a field;
+ * instead every thread keeps one array of each type, grown to the largest length it was
+ * asked for. The contents are left from the previous use, and an array stays valid only
+ * until the next request of the same type on the same thread.
+ */
+final class ScratchBuffers {
+    /** The float array of every thread. */
+    private static final ThreadLocal<float[]> FLOATS = ThreadLocal.withInitial(() -> new float[0]);
+    /** The int array of every thread. */
+    private static final ThreadLocal<int[]> INTS = ThreadLocal.withInitial(() -> new int[0]);
+
+    private ScratchBuffers() {
+    }
+
+    /**
+     * Returns the float scratch array of the current thread.
+     *
+     * @param length    The least amount of elements the array must have.
+     * @return the scratch array, at least length elements long.
+     */
+    static float[] floats(int length) {
+        float[] buffer = FLOATS.get();
+        if (buffer.length < length) {
+            buffer = new float[length];
+            FLOATS.set(buffer);
+        }
+        return buffer;
+    }
+
+    /**
+     * Returns the int scratch array of the current thread.
+     *
+     * @param length    The least amount of elements the array must have.
+     * @return the scratch array, at least length elements long.
+     */
+    static int[] ints(int length) {
+        int[] buffer = INTS.get();
+        if (buffer.length < length) {
+            buffer = new int[length];
+            INTS.set(buffer);
+        }
+        return buffer;
+    }
+}
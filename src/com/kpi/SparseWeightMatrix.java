@@ -0,0 +1,291 @@
+package com.kpi;
+
+import java.util.Arrays;
+import java.util.Random;
+
+/**
+ * A SparseWeightMatrix object.
+ * A weight matrix of a diluted network where every neuron is connected only to a fixed
+ * set of other neurons. The connections are chosen at construction and never change;
+ * only their weights are trained. The weights are stored in compressed sparse row (CSR)
+ * form, so memory and the cost of training and recall grow as O(N*k) for fan-in k
+ * instead of O(N^2). The connections are always symmetric.
+ */
+public class SparseWeightMatrix implements WeightStore {
+    /** The number of <strong>neurons</strong> the weights connect. */
+    private final int size;
+    /** The index in colIndices and values where each row begins; has size + 1 elements. */
+    private final int[] rowStarts;
+    /** The column of every stored weight, sorted within each row. */
+    private final int[] colIndices;
+    /** The stored <strong>weights</strong>, row after row. */
+    private final float[] values;
+
+    /**
+     * Initializes a matrix with the given connections and all weights set to 0.0f.
+     *
+     * @param size          The number of <strong>neurons</strong>.
+     * @param rowStarts     The index where each row begins; has size + 1 elements.
+     * @param colIndices    The column of every connection.
+     */
+    private SparseWeightMatrix(int size, int[] rowStarts, int[] colIndices) {
+        this.size = size;
+        this.rowStarts = rowStarts;
+        this.colIndices = colIndices;
+        this.values = new float[colIndices.length];
+    }
+
+    /**
+     * Initializes a copy of the passed matrix. The connections are shared, as they never change.
+     *
+     * @param matrix    A <strong>matrix</strong> to be copied.
+     */
+    public SparseWeightMatrix(SparseWeightMatrix matrix) {
+        this.size = matrix.size;
+        this.rowStarts = matrix.rowStarts;
+        this.colIndices = matrix.colIndices;
+        this.values = matrix.values.clone();
+    }
+
+    /**
+     * Creates a matrix for a network whose neurons are the cells of a rows x cols grid.
+     * Every cell is connected to the cells at most <strong>radius</strong> rows and columns
+     * away from it, so the fan-in is at most (2*radius + 1)^2 - 1.
+     *
+     * @param rows      The amount of <strong>rows</strong> in the grid.
+     * @param cols      The amount of <strong>columns</strong> in the grid.
+     * @param radius    The largest distance between connected cells along rows and columns.
+     * @return The matrix with all weights set to 0.0f.
+     */
+    public static SparseWeightMatrix gridNeighbours(int rows, int cols, int radius) {
+        if (rows <= 0 || cols <= 0 || radius <= 0)
+            throw new IllegalArgumentException("Grid dimensions and radius must be positive.");
+
+        int size = rows * cols;
+        // The neighbourhood is clipped by the grid, so the fan-in never exceeds size - 1.
+        long maxFanIn = Math.min((long) rows, 2L * radius + 1) * Math.min((long) cols, 2L * radius + 1) - 1;
+        long maxConnections = (long) size * maxFanIn;
+        if (maxConnections > Integer.MAX_VALUE - 8)
+            throw new IllegalArgumentException("Grid of " + rows + "x" + cols + " with radius " + radius
+                    + " has too many connections: " + maxConnections);
+
+        int[] rowStarts = new int[size + 1];
+        int[] colIndices = new int[(int) maxConnections];
+        int count = 0;
+
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                rowStarts[r * cols + c] = count;
+
+                for (int nr = Math.max(0, r - radius); nr <= Math.min(rows - 1, r + radius); nr++)
+                    for (int nc = Math.max(0, c - radius); nc <= Math.min(cols - 1, c + radius); nc++)
+                        if (nr != r || nc != c)
+                            colIndices[count++] = nr * cols + nc;
+            }
+        }
+        rowStarts[size] = count;
+
+        return new SparseWeightMatrix(size, rowStarts, Arrays.copyOf(colIndices, count));
+    }
+
+    /**
+     * Creates a matrix for a randomly diluted network. Every neuron picks fanIn / 2 random
+     * partners and the connections are mirrored to keep them symmetric, so the fan-in of
+     * a neuron is about <strong>fanIn</strong>.
+     *
+     * @param size  The number of <strong>neurons</strong>.
+     * @param fanIn The average amount of connections per neuron. Must be less than size.
+     * @param seed  The seed of the random connections.
+     * @return The matrix with all weights set to 0.0f.
+     */
+    public static SparseWeightMatrix randomDilution(int size, int fanIn, long seed) {
+        if (size <= 1 || fanIn <= 0 || fanIn >= size)
+            throw new IllegalArgumentException("Fan-in must be between 1 and " + (size - 1) + " instead of " + fanIn);
+
+        int picks = Math.max(1, fanIn / 2);
+        // Every pick is stored in both rows before the duplicates are dropped.
+        long maxConnections = 2L * size * picks;
+        if (maxConnections > Integer.MAX_VALUE - 8)
+            throw new IllegalArgumentException("Diluted network of " + size + " neurons with fan-in " + fanIn
+                    + " has too many connections: " + maxConnections);
+
+        Random random = new Random(seed);
+        int[] partners = new int[size * picks];
+        int[] rowStarts = new int[size + 1];
+        for (int i = 0; i < size; i++) {
+            for (int picked = 0; picked < picks; picked++) {
+                int j = random.nextInt(size - 1);
+                if (j >= i)
+                    j++;
+
+                partners[i * picks + picked] = j;
+                rowStarts[i + 1]++;
+                rowStarts[j + 1]++;
+            }
+        }
+        for (int i = 0; i < size; i++)
+            rowStarts[i + 1] += rowStarts[i];
+
+        int[] colIndices = new int[(int) maxConnections];
+        int[] ends = Arrays.copyOf(rowStarts, size);
+        for (int i = 0; i < size; i++) {
+            for (int picked = 0; picked < picks; picked++) {
+                int j = partners[i * picks + picked];
+                colIndices[ends[i]++] = j;
+                colIndices[ends[j]++] = i;
+            }
+        }
+
+        // Sorts every row and drops the repeated partners, moving the rows to the front.
+        int count = 0;
+        for (int i = 0; i < size; i++) {
+            int from = rowStarts[i];
+            int to = rowStarts[i + 1];
+            Arrays.sort(colIndices, from, to);
+
+            rowStarts[i] = count;
+            for (int k = from; k < to; k++)
+                if (k == from || colIndices[k] != colIndices[k - 1])
+                    colIndices[count++] = colIndices[k];
+        }
+        rowStarts[size] = count;
+
+        return new SparseWeightMatrix(size, rowStarts, Arrays.copyOf(colIndices, count));
+    }
+
+    /**
+     * Returns the amount of stored connections (in both directions).
+     * @return the amount of stored connections.
+     */
+    public int connectionsNum() {
+        return colIndices.length;
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    @Override
+    public float get(int row, int col) {
+        int k = Arrays.binarySearch(colIndices, rowStarts[row], rowStarts[row + 1], col);
+        return (k >= 0) ? values[k] : 0.0f;
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(values, 0.0f);
+    }
+
+    @Override
+    public void scale(float scalar) {
+        for (int k = 0; k < values.length; k++)
+            values[k] *= scalar;
+    }
+
+    /**
+     * Adds the outer product of the bipolar <strong>pattern</strong> with itself, multiplied by
+     * the <strong>scale</strong>, to the weights of the existing connections only.
+     *
+     * @param pattern   The pattern whose outer product is added. Must have the size of the matrix.
+     * @param scale     The scalar value every product is multiplied by.
+     */
+    @Override
+    public void addOuterProduct(PackedPattern pattern, float scale) {
+        checkPattern(pattern);
+
+        for (int i = 0; i < size; i++) {
+            boolean state = pattern.get(i);
+            for (int k = rowStarts[i]; k < rowStarts[i + 1]; k++)
+                values[k] += (state == pattern.get(colIndices[k])) ? scale : -scale;
+        }
+    }
+
+    @Override
+    public void addOuterProduct(float[] vector, float scale) {
+        checkVector(vector);
+
+        for (int i = 0; i < size; i++) {
+            float rowScale = vector[i] * scale;
+            for (int k = rowStarts[i]; k < rowStarts[i + 1]; k++)
+                values[k] += rowScale * vector[colIndices[k]];
+        }
+    }
+
+    @Override
+    public void multiply(PackedPattern pattern, float[] result) {
+        checkPattern(pattern);
+        checkVector(result);
+
+        for (int i = 0; i < size; i++) {
+            float sum = 0.0f;
+            for (int k = rowStarts[i]; k < rowStarts[i + 1]; k++)
+                sum += pattern.get(colIndices[k]) ? values[k] : -values[k];
+
+            result[i] = sum;
+        }
+    }
+
+    @Override
+    public void multiply(float[] matrix, int stride, int cols, float[] result) {
+        if (cols > stride)
+            throw new IllegalArgumentException("Amount of columns must not exceed the stride " + stride + " instead of " + cols);
+        if (matrix.length < size * stride || result.length < size * stride)
+            throw new IllegalArgumentException("Matrices must have " + size + " rows of length " + stride + ".");
+
+        for (int i = 0; i < size; i++) {
+            int resOffset = i * stride;
+            Arrays.fill(result, resOffset, resOffset + cols, 0.0f);
+
+            for (int k = rowStarts[i]; k < rowStarts[i + 1]; k++) {
+                float weight = values[k];
+                int matOffset = colIndices[k] * stride;
+
+                for (int j = 0; j < cols; j++)
+                    result[resOffset + j] += weight * matrix[matOffset + j];
+            }
+        }
+    }
+
+    /**
+     * Adds the weights of the given neuron, multiplied by the <strong>factor</strong>, to the
+     * <strong>result</strong> array. The connections are symmetric, so the row of the neuron
+     * is read instead of its column.
+     *
+     * @param col       The index of the neuron.
+     * @param factor    The scalar value every weight is multiplied by.
+     * @param result    The array the weights are added to. Must have the size of the matrix.
+     */
+    @Override
+    public void addColumn(int col, float factor, float[] result) {
+        checkVector(result);
+
+        for (int k = rowStarts[col]; k < rowStarts[col + 1]; k++)
+            result[colIndices[k]] += factor * values[k];
+    }
+
+    @Override
+    public SparseWeightMatrix copy() {
+        return new SparseWeightMatrix(this);
+    }
+
+    /**
+     * Checks that the <strong>pattern</strong> has the size of the matrix.
+     *
+     * @param pattern   The pattern to be checked.
+     */
+    private void checkPattern(PackedPattern pattern) {
+        if (pattern.size() != size)
+            throw new IllegalArgumentException("Size of pattern must be " + size + " instead of " + pattern.size());
+    }
+
+    /**
+     * Checks that the <strong>vector</strong> has the size of the matrix.
+     *
+     * @param vector    The vector to be checked.
+     */
+    private void checkVector(float[] vector) {
+        if (vector.length != size)
+            throw new IllegalArgumentException("Size of vector must be " + size + " instead of " + vector.length);
+    }
+}
@@ -0,0 +1,54 @@
+package com.kpi;
+
+/**
+ * The Storkey learning rule: a local and incremental rule with a higher capacity than
+ * the Hebbian one, about 0.2 * N random patterns for N neurons against 0.14 * N.
+ * <p>
+ * For a new pattern x the rule uses the local fields h<sub>ij</sub> of the current weights
+ * without the contributions of neurons i and j:
+ * w<sub>ij</sub> += (x<sub>i</sub> x<sub>j</sub> - x<sub>i</sub> h<sub>ji</sub> - h<sub>ij</sub> x<sub>j</sub>) / N.
+ * With a zero diagonal h<sub>ij</sub> = h<sub>i</sub> - w<sub>ij</sub> x<sub>j</sub>, so the whole
+ * update is W = (1 + 2/N) * W + ((x - h)(x - h)<sup>T</sup> - h h<sup>T</sup>) / N, which is one
+ * product of the weights and the pattern, one scaling and two rank-1 updates in place. The rule
+ * reuses its buffers and allocates nothing per pattern. Patterns cannot be removed incrementally,
+ * so removing one retrains the network.
+ */
+public class StorkeyRule implements LearningRule {
+    /** The buffer for the local fields of a pattern, reused between updates. */
+    private float[] fields = new float[0];
+    /** The buffer for the difference of a pattern and its local fields, reused between updates. */
+    private float[] residual = new float[0];
+
+    @Override
+    public void reset(WeightStore weights) {
+        weights.clear();
+    }
+
+    @Override
+    public void learn(WeightStore weights, PackedPattern pattern) {
+        int size = weights.size();
+        if (fields.length != size) {
+            fields = new float[size];
+            residual = new float[size];
+        }
+
+        weights.multiply(pattern, fields);
+        for (int i = 0; i < size; i++)
+            residual[i] = pattern.getState(i) - fields[i];
+
+        weights.scale(1.0f + 2.0f/size);
+        weights.addOuterProduct(residual, 1.0f/size);
+        weights.addOuterProduct(fields, -1.0f/size);
+    }
+
+    /**
+     * Tells whether the rule can train the given weight store: it adds outer products of real vectors.
+     *
+     * @param weights   The store of the <strong>weights</strong> to be trained.
+     * @return true if the store supports outer products of vectors.
+     */
+    @Override
+    public boolean supports(WeightStore weights) {
+        return weights.supportsVectorProducts();
+    }
+}
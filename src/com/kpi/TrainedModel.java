@@ -0,0 +1,254 @@
+package com.kpi;
+
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * A TrainedModel object.
+ * An immutable snapshot of a trained Hopfield network: the weight matrix, the stored
+ * letters and the update policy. Nothing in the model changes after it is created,
+ * so one model can serve recall requests from any number of threads at once.
+ */
+public final class TrainedModel {
+    /** The amount of <strong>rows</strong> in the letters the model works with. */
+    private final int rows;
+    /** The amount of <strong>columns</strong> in the letters the model works with. */
+    private final int cols;
+    /** A matrix representing the weights between neurons. It is never modified. */
+    private final WeightStore weights;
+    /** An index of the packed stored letters. It is never modified. */
+    private final Map<PackedPattern, Letter> attractors;
+    /** The order in which neurons are updated during recall. */
+    private final UpdatePolicy updatePolicy;
+    /** The listener of the recall progress, or null. */
+    private final RecallListener recallListener;
+    /** The Hamming index of the stored patterns checked before the recall, or null if it is disabled. */
+    private final HammingIndex prefilter;
+    /** The cache of the recall results, or null. */
+    private final RecallCache recallCache;
+    /** The engine that runs the recall over the weights and the attractor index. */
+    private final RecallEngine engine;
+
+    /**
+     * Initializes a model over the given weights and attractor index. Both must not be
+     * modified by anyone after the call.
+     *
+     * @param rows              The amount of <strong>rows</strong> in the letters.
+     * @param cols              The amount of <strong>columns</strong> in the letters.
+     * @param weights           A matrix representing the <strong>weights</strong> between neurons.
+     * @param attractors        An index of the packed stored letters.
+     * @param updatePolicy      The order in which neurons are updated during recall.
+     * @param recallListener    The listener of the recall progress, or null.
+     * @param prefilterRadius   The radius of the nearest-pattern pre-filter, or -1 to disable it.
+     * @param recallCache       The cache of the recall results, or null.
+     */
+    TrainedModel(int rows, int cols, WeightStore weights, Map<PackedPattern, Letter> attractors,
+                 UpdatePolicy updatePolicy, RecallListener recallListener, int prefilterRadius,
+                 RecallCache recallCache) {
+        this.rows = rows;
+        this.cols = cols;
+        this.weights = weights;
+        this.attractors = Collections.unmodifiableMap(attractors);
+        this.updatePolicy = updatePolicy;
+        this.recallListener = recallListener;
+        this.recallCache = recallCache;
+
+        if (prefilterRadius < 0) {
+            this.prefilter = null;
+        } else {
+            this.prefilter = new HammingIndex(weights.size(), prefilterRadius);
+            for (PackedPattern pattern : attractors.keySet())
+                prefilter.add(pattern);
+        }
+        this.engine = new RecallEngine(weights, this.attractors, prefilter, recallCache);
+    }
+
+    /**
+     * Returns a model with the same weights and stored letters that reports its recalls
+     * to the given listener. The weights are shared, not copied.
+     *
+     * @param recallListener    The listener of the recall progress, or null for none.
+     * @return the model with the listener.
+     */
+    public TrainedModel withRecallListener(RecallListener recallListener) {
+        return new TrainedModel(rows, cols, weights, attractors, updatePolicy, recallListener, getPrefilterRadius(),
+                recallCache);
+    }
+
+    /**
+     * Returns a model with the same weights and stored letters that answers the inputs with
+     * a single nearest stored letter within the given Hamming distance without running the
+     * network, as HopfieldNN.setPrefilterRadius describes. The weights are shared, not copied.
+     * The pre-filter changes the results, so the new model has no recall cache; give it a new
+     * one with withRecallCache.
+     *
+     * @param prefilterRadius   The largest Hamming distance answered by the pre-filter, or -1 to disable it.
+     * @return the model with the pre-filter.
+     */
+    public TrainedModel withPrefilterRadius(int prefilterRadius) {
+        return new TrainedModel(rows, cols, weights, attractors, updatePolicy, recallListener, prefilterRadius, null);
+    }
+
+    /**
+     * Returns a model with the same weights and stored letters that answers the single recalls
+     * of inputs it has seen before from the cache. The weights of a model never change, so the
+     * cache is never invalidated by the model; it must not be used by another model or network.
+     * The weights are shared, not copied.
+     *
+     * @param recallCache   The cache of the recall results, or null for none.
+     * @return the model with the cache.
+     */
+    public TrainedModel withRecallCache(RecallCache recallCache) {
+        if (recallCache != null)
+            recallCache.invalidate();
+
+        return new TrainedModel(rows, cols, weights, attractors, updatePolicy, recallListener, getPrefilterRadius(),
+                recallCache);
+    }
+
+    /**
+     * Returns the number of neurons in the model.
+     * @return the number of neurons in the model.
+     */
+    public int size() {
+        return weights.size();
+    }
+
+    /**
+     * Returns the amount of rows in the letters the model works with.
+     * @return the amount of rows in the letters the model works with.
+     */
+    public int getRowsNum() {
+        return rows;
+    }
+
+    /**
+     * Returns the amount of columns in the letters the model works with.
+     * @return the amount of columns in the letters the model works with.
+     */
+    public int getColsNum() {
+        return cols;
+    }
+
+    /**
+     * Returns the order in which neurons are updated during recall.
+     * @return the order in which neurons are updated during recall.
+     */
+    public UpdatePolicy getUpdatePolicy() {
+        return updatePolicy;
+    }
+
+    /**
+     * Returns the listener of the recall progress.
+     * @return the listener of the recall progress, or null if there is none.
+     */
+    public RecallListener getRecallListener() {
+        return recallListener;
+    }
+
+    /**
+     * Returns the cache of the recall results.
+     * @return the cache of the recall results, or null if there is none.
+     */
+    public RecallCache getRecallCache() {
+        return recallCache;
+    }
+
+    /**
+     * Returns the radius of the nearest-pattern pre-filter.
+     * @return the radius of the pre-filter, or -1 if it is disabled.
+     */
+    public int getPrefilterRadius() {
+        return (prefilter == null) ? -1 : prefilter.getRadius();
+    }
+
+    /**
+     * Returns copies of the letters stored in the model, so that changing them cannot change the model.
+     * @return the letters stored in the model.
+     */
+    public Collection<Letter> getLetters() {
+        List<Letter> letters = new ArrayList<>(attractors.size());
+        for (Letter letter : attractors.values())
+            letters.add(new Letter(rows, cols, new ArrayList<>(letter.getLetter())));
+
+        return letters;
+    }
+
+    /**
+     * Returns copies of the packed stored patterns, so that changing them cannot change the
+     * model: the stored patterns are the keys of its attractor index.
+     * @return the packed stored patterns.
+     */
+    public Collection<PackedPattern> getPatterns() {
+        List<PackedPattern> patterns = new ArrayList<>(attractors.size());
+        for (PackedPattern pattern : attractors.keySet())
+            patterns.add(new PackedPattern(pattern));
+
+        return patterns;
+    }
+
+    /**
+     * Returns the packed stored patterns themselves, without copying them. They must not be modified.
+     * @return an unmodifiable view of the packed stored patterns.
+     */
+    Collection<PackedPattern> storedPatterns() {
+        return attractors.keySet();
+    }
+
+    /**
+     * Returns the weights of the model. They must not be modified.
+     * @return the weights of the model.
+     */
+    WeightStore weights() {
+        return weights;
+    }
+
+    /**
+     * Predicts the closest matching stored letter for the input letter.
+     *
+     * @param inputLetter   The Letter object that needs to be predicted (matched to one of the stored letters).
+     * @return Returns the predicted letter, or null if it was not recognized within 100 iterations.
+     */
+    public Letter predict(Letter inputLetter) {
+        PackedPattern output = predict(inputLetter.toPacked(), 100);
+        return (output == null) ? null : new Letter(rows, cols, output);
+    }
+
+    /**
+     * Runs the packed input pattern through the model for a specified number of iterations.
+     *
+     * @param inputPattern  The packed pattern that needs to be predicted (matched to one of the stored letters).
+     * @param maxIterations The maximum number of iterations to run the prediction process.
+     * @return Returns the packed stored pattern the input converged to, or null.
+     */
+    public PackedPattern predict(PackedPattern inputPattern, int maxIterations) {
+        return engine.predict(inputPattern, maxIterations, updatePolicy, ThreadLocalRandom.current(), recallListener);
+    }
+
+    /**
+     * Runs the packed input pattern through the model and tells how the recall ended.
+     *
+     * @param inputPattern  The packed pattern that needs to be recalled.
+     * @param maxIterations The maximum number of iterations to run the recall.
+     * @return the result of the recall with the final state and the nearest stored pattern.
+     */
+    public RecallResult recall(PackedPattern inputPattern, int maxIterations) {
+        return engine.recall(inputPattern, maxIterations, updatePolicy, ThreadLocalRandom.current(), recallListener);
+    }
+
+    /**
+     * Predicts the closest matching stored letter for every input letter in one batched pass.
+     *
+     * @param inputLetters  The Letter objects that need to be predicted.
+     * @param maxIterations The maximum number of iterations to run the prediction process.
+     * @return Returns the predicted letters in the order of the input letters, with null for
+     * letters that were not recognized.
+     */
+    public List<Letter> predictBatch(List<Letter> inputLetters, int maxIterations) {
+        return engine.predictBatch(inputLetters, maxIterations, recallListener);
+    }
+}
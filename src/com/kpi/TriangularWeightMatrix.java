@@ -0,0 +1,212 @@
+package com.kpi;
+
+import java.util.Arrays;
+
+/**
+ * A TriangularWeightMatrix object.
+ * A symmetric weight matrix with a zero diagonal that stores only its upper triangle,
+ * row after row, in one contiguous primitive array: N*(N-1)/2 weights instead of N*N,
+ * in the same layout as the weights of a model file. Training calculates every product
+ * of an outer product once, and every stored weight is applied to both the field of
+ * its row and the field of its column while it is read.
+ */
+public class TriangularWeightMatrix implements WeightStore {
+    /** The number of <strong>neurons</strong> the weights connect. */
+    private final int size;
+    /** The upper triangle of the weights without the diagonal, row after row. */
+    private final float[] data;
+
+    /**
+     * Initializes a matrix of the given size with all weights set to 0.0f.
+     *
+     * @param size  The number of <strong>neurons</strong> the weights connect.
+     */
+    public TriangularWeightMatrix(int size) {
+        if (size <= 0)
+            throw new IllegalArgumentException("Size of weight matrix must be positive instead of " + size);
+
+        long weightsNum = MappedWeightMatrix.triangleSize(size);
+        if (weightsNum > Integer.MAX_VALUE - 8)
+            throw new IllegalArgumentException("Size of weight matrix is too large for one array: " + size);
+
+        this.size = size;
+        this.data = new float[(int) weightsNum];
+    }
+
+    /**
+     * Initializes a copy of the passed matrix.
+     *
+     * @param matrix    A <strong>matrix</strong> to be copied.
+     */
+    public TriangularWeightMatrix(TriangularWeightMatrix matrix) {
+        this.size = matrix.size;
+        this.data = matrix.data.clone();
+    }
+
+    @Override
+    public TriangularWeightMatrix copy() {
+        return new TriangularWeightMatrix(this);
+    }
+
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the position of the first stored weight of a row, the one of the column after the diagonal.
+     *
+     * @param row   The <strong>row</strong> of the weights.
+     * @return the position of the first weight of the row in the triangle.
+     */
+    private int rowStart(int row) {
+        return (int) MappedWeightMatrix.triangleIndex(row, row + 1, size);
+    }
+
+    @Override
+    public float get(int row, int col) {
+        if (row == col)
+            return 0.0f;
+
+        return (row < col) ? data[rowStart(row) + col - row - 1] : data[rowStart(col) + row - col - 1];
+    }
+
+    @Override
+    public void clear() {
+        Arrays.fill(data, 0.0f);
+    }
+
+    @Override
+    public void scale(float scalar) {
+        for (int i = 0; i < data.length; i++)
+            data[i] *= scalar;
+    }
+
+    /**
+     * Adds the outer product of the bipolar <strong>pattern</strong> with itself, multiplied by
+     * the <strong>scale</strong>, to the stored weights. Only the products of the upper triangle
+     * are calculated.
+     *
+     * @param pattern   The pattern whose outer product is added. Must have the size of the matrix.
+     * @param scale     The scalar value every product is multiplied by.
+     */
+    @Override
+    public void addOuterProduct(PackedPattern pattern, float scale) {
+        if (pattern.size() != size)
+            throw new IllegalArgumentException("Size of pattern must be " + size + " instead of " + pattern.size());
+
+        long[] words = pattern.words();
+        int index = 0;
+        for (int i = 0; i < size; i++) {
+            boolean state = (words[i >>> 6] >>> i & 1L) != 0;
+
+            for (int j = i + 1; j < size; j++)
+                data[index++] += (state == ((words[j >>> 6] >>> j & 1L) != 0)) ? scale : -scale;
+        }
+    }
+
+    /**
+     * Adds the outer product of the <strong>vector</strong> with itself, multiplied by
+     * the <strong>scale</strong>, to the stored weights. Every row of the triangle is the
+     * rest of the vector multiplied by one of its elements.
+     *
+     * @param vector    The vector whose outer product is added. Must have the size of the matrix.
+     * @param scale     The scalar value every product is multiplied by.
+     */
+    @Override
+    public void addOuterProduct(float[] vector, float scale) {
+        checkVector(vector);
+
+        for (int i = 0; i < size - 1; i++)
+            FieldKernels.KERNEL.axpy(vector[i] * scale, vector, i + 1, data, rowStart(i), size - i - 1);
+    }
+
+    /**
+     * Multiplies the weights by the bipolar <strong>pattern</strong>. The pattern is unpacked
+     * once into a per-thread scratch array of floats of 1 and -1; then every row of the triangle
+     * is read once by the field kernel, which adds its dot product with the states to the field
+     * of the row neuron and the row, multiplied by the state of the row neuron, to the fields of
+     * the column neurons.
+     *
+     * @param pattern   The pattern to be multiplied. Must have the size of the matrix.
+     * @param result    The array the product is written to. Must have the size of the matrix.
+     */
+    @Override
+    public void multiply(PackedPattern pattern, float[] result) {
+        if (pattern.size() != size)
+            throw new IllegalArgumentException("Size of pattern must be " + size + " instead of " + pattern.size());
+        checkVector(result);
+
+        long[] words = pattern.words();
+        float[] states = ScratchBuffers.floats(size);
+        for (int j = 0; j < size; j++)
+            states[j] = ((words[j >>> 6] >>> j & 1L) != 0) ? 1.0f : -1.0f;
+
+        Arrays.fill(result, 0.0f);
+        int index = 0;
+        for (int i = 0; i < size; i++) {
+            int length = size - i - 1;
+            result[i] += FieldKernels.KERNEL.dotAxpy(data, index, states, states[i], result, i + 1, length);
+            index += length;
+        }
+    }
+
+    @Override
+    public void multiply(float[] matrix, int stride, int cols, float[] result) {
+        if (cols > stride)
+            throw new IllegalArgumentException("Amount of columns must not exceed the stride " + stride + " instead of " + cols);
+        if (matrix.length < size * stride || result.length < size * stride)
+            throw new IllegalArgumentException("Matrices must have " + size + " rows of length " + stride + ".");
+
+        for (int i = 0; i < size; i++)
+            Arrays.fill(result, i * stride, i * stride + cols, 0.0f);
+
+        int index = 0;
+        for (int i = 0; i < size; i++) {
+            int offsetI = i * stride;
+
+            for (int j = i + 1; j < size; j++) {
+                float weight = data[index++];
+                if (weight == 0.0f)
+                    continue;
+
+                int offsetJ = j * stride;
+                FieldKernels.KERNEL.axpy(weight, matrix, offsetJ, result, offsetI, cols);
+                FieldKernels.KERNEL.axpy(weight, matrix, offsetI, result, offsetJ, cols);
+            }
+        }
+    }
+
+    /**
+     * Adds the given <strong>column</strong> of the weights, multiplied by the <strong>factor</strong>,
+     * to the <strong>result</strong> array. The part above the diagonal is read down the column of
+     * the triangle, the part below it as the contiguous row with the same index.
+     *
+     * @param col       The index of the column to be added.
+     * @param factor    The scalar value every weight of the column is multiplied by.
+     * @param result    The array the column is added to. Must have the size of the matrix.
+     */
+    @Override
+    public void addColumn(int col, float factor, float[] result) {
+        checkVector(result);
+
+        int index = col - 1;
+        for (int i = 0; i < col; i++) {
+            result[i] += factor * data[index];
+            index += size - i - 2;
+        }
+
+        if (col < size - 1)
+            FieldKernels.KERNEL.axpy(factor, data, rowStart(col), result, col + 1, size - col - 1);
+    }
+
+    /**
+     * Checks that the <strong>vector</strong> has the size of the matrix.
+     *
+     * @param vector    The vector to be checked.
+     */
+    private void checkVector(float[] vector) {
+        if (vector.length != size)
+            throw new IllegalArgumentException("Size of vector must be " + size + " instead of " + vector.length);
+    }
+}
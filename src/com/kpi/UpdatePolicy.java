@@ -0,0 +1,13 @@
+package com.kpi;
+
+/**
+ * The order in which the Hopfield network updates its neurons during recall.
+ */
+public enum UpdatePolicy {
+    /** All neurons are updated at once from the previous state. May fall into 2-cycles. */
+    SYNCHRONOUS,
+    /** Neurons are updated one by one in index order, each seeing the earlier updates of the sweep. */
+    SEQUENTIAL,
+    /** Neurons are updated one by one in a new random permutation every sweep. */
+    RANDOM
+}
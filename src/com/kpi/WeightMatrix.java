@@ -0,0 +1,263 @@
+package com.kpi;
+
+import java.util.Arrays;
+
+/**
+ * A WeightMatrix object.
+ * A square matrix of weights between neurons, stored in one contiguous primitive
+ * array in row-major order. All operations work in place and do not allocate.
+ */
+public class WeightMatrix implements WeightStore {
+    /** The amount of <strong>rows</strong> and <strong>columns</strong> in one cache block of a matrix-matrix product. */
+    private static final int BLOCK_SIZE = 64;
+    /** The amount of <strong>rows</strong> (and columns) in the matrix. */
+    private final int size;
+    /** The matrix <strong>elements</strong> in row-major order. */
+    private final float[] data;
+
+    /**
+     * Initializes a square matrix of the given size with all elements set to 0.0f.
+     *
+     * @param size  The amount of <strong>rows</strong> (and columns) in the matrix.
+     */
+    public WeightMatrix(int size) {
+        if (size <= 0)
+            throw new IllegalArgumentException("Size of weight matrix must be positive instead of " + size);
+
+        this.size = size;
+        this.data = new float[size * size];
+    }
+
+    /**
+     * Initializes a copy of the passed matrix.
+     *
+     * @param matrix    A <strong>matrix</strong> to be copied.
+     */
+    public WeightMatrix(WeightMatrix matrix) {
+        this.size = matrix.size;
+        this.data = matrix.data.clone();
+    }
+
+    /**
+     * Returns an independent copy of the matrix.
+     * @return an independent copy of the matrix.
+     */
+    @Override
+    public WeightMatrix copy() {
+        return new WeightMatrix(this);
+    }
+
+    /**
+     * Returns the amount of rows (and columns) in the matrix.
+     * @return the amount of rows (and columns) in the matrix.
+     */
+    @Override
+    public int size() {
+        return size;
+    }
+
+    /**
+     * Returns the element at the given position.
+     *
+     * @param row   The <strong>row</strong> of the element.
+     * @param col   The <strong>column</strong> of the element.
+     * @return the element at the given position.
+     */
+    @Override
+    public float get(int row, int col) {
+        return data[row * size + col];
+    }
+
+    /**
+     * Sets the element at the given position.
+     *
+     * @param row   The <strong>row</strong> of the element.
+     * @param col   The <strong>column</strong> of the element.
+     * @param value The new <strong>value</strong> of the element.
+     */
+    public void set(int row, int col, float value) {
+        data[row * size + col] = value;
+    }
+
+    /**
+     * Sets all elements of the matrix to 0.0f.
+     */
+    @Override
+    public void clear() {
+        Arrays.fill(data, 0.0f);
+    }
+
+    /**
+     * Adds the outer product of the <strong>vector</strong> with itself, multiplied by
+     * the <strong>scale</strong>, to the off-diagonal elements of the matrix. The diagonal
+     * elements are left unchanged. The outer product is symmetric, so only the upper
+     * triangle is calculated and then mirrored to the lower one.
+     *
+     * @param vector    The vector whose outer product is added. Must have the size of the matrix.
+     * @param scale     The scalar value every product is multiplied by.
+     */
+    @Override
+    public void addOuterProduct(float[] vector, float scale) {
+        checkVector(vector);
+
+        for (int i = 0; i < size; i++) {
+            float rowScale = vector[i] * scale;
+            int rowOffset = i * size;
+
+            for (int j = i + 1; j < size; j++) {
+                float product = rowScale * vector[j];
+                data[rowOffset + j] += product;
+                data[j * size + i] += product;
+            }
+        }
+    }
+
+    /**
+     * Adds the outer product of the bipolar <strong>pattern</strong> with itself, multiplied by
+     * the <strong>scale</strong>, to the off-diagonal elements of the matrix. Every product is
+     * the scale when two states are equal and the negated scale otherwise.
+     *
+     * @param pattern   The pattern whose outer product is added. Must have the size of the matrix.
+     * @param scale     The scalar value every product is multiplied by.
+     */
+    @Override
+    public void addOuterProduct(PackedPattern pattern, float scale) {
+        if (pattern.size() != size)
+            throw new IllegalArgumentException("Size of pattern must be " + size + " instead of " + pattern.size());
+
+        for (int i = 0; i < size; i++) {
+            boolean state = pattern.get(i);
+            int rowOffset = i * size;
+
+            for (int j = i + 1; j < size; j++) {
+                float product = (state == pattern.get(j)) ? scale : -scale;
+                data[rowOffset + j] += product;
+                data[j * size + i] += product;
+            }
+        }
+    }
+
+    /**
+     * Multiplies each element of the matrix by a <strong>scalar</strong> value.
+     *
+     * @param scalar    The scalar value to multiply each element of the matrix by.
+     */
+    @Override
+    public void scale(float scalar) {
+        for (int i = 0; i < data.length; i++)
+            data[i] *= scalar;
+    }
+
+    /**
+     * Sets all the diagonal elements of the matrix to a specified <strong>value</strong>.
+     *
+     * @param value     The value to set in the diagonal elements of the matrix.
+     */
+    public void fillDiagonal(float value) {
+        for (int i = 0; i < size; i++)
+            data[i * size + i] = value;
+    }
+
+    /**
+     * Multiplies the matrix by the <strong>vector</strong> and writes the product into
+     * the <strong>result</strong> array.
+     *
+     * @param vector    The vector to be multiplied. Must have the size of the matrix.
+     * @param result    The array the product is written to. Must have the size of the matrix
+     *                  and must not be the same array as the vector.
+     */
+    public void multiply(float[] vector, float[] result) {
+        checkVector(vector);
+        checkVector(result);
+
+        for (int i = 0; i < size; i++)
+            result[i] = FieldKernels.KERNEL.dot(data, i * size, vector, size);
+    }
+
+    /**
+     * Multiplies the matrix by the bipolar <strong>pattern</strong> and writes the product
+     * into the <strong>result</strong> array. As every state is 1 or -1, each weight is
+     * either added to or subtracted from the sum, without a multiplication. The rows are
+     * processed by the field kernel, with vector instructions when they are available.
+     *
+     * @param pattern   The pattern to be multiplied. Must have the size of the matrix.
+     * @param result    The array the product is written to. Must have the size of the matrix.
+     */
+    @Override
+    public void multiply(PackedPattern pattern, float[] result) {
+        if (pattern.size() != size)
+            throw new IllegalArgumentException("Size of pattern must be " + size + " instead of " + pattern.size());
+        checkVector(result);
+
+        FieldKernels.KERNEL.multiplyBipolar(data, size, pattern.words(), ScratchBuffers.floats(size), result);
+    }
+
+    /**
+     * Multiplies the weight matrix by a matrix of states and writes the product into the
+     * <strong>result</strong> array. Both the states and the result have one row per neuron
+     * and one column per pattern, in row-major order with the given stride. Only the first
+     * <strong>cols</strong> columns are multiplied. The product is calculated in blocks, so
+     * the rows of states in use stay in cache while every row of weights is applied to them.
+     *
+     * @param matrix    The matrix of states to be multiplied.
+     * @param stride    The distance between the beginnings of two rows of the states and the result.
+     * @param cols      The amount of columns to be multiplied. Must not exceed the stride.
+     * @param result    The array the product is written to. Must be the same size as the states
+     *                  and must not be the same array.
+     */
+    @Override
+    public void multiply(float[] matrix, int stride, int cols, float[] result) {
+        if (cols > stride)
+            throw new IllegalArgumentException("Amount of columns must not exceed the stride " + stride + " instead of " + cols);
+        if (matrix.length < size * stride || result.length < size * stride)
+            throw new IllegalArgumentException("Matrices must have " + size + " rows of length " + stride + ".");
+
+        for (int i = 0; i < size; i++)
+            Arrays.fill(result, i * stride, i * stride + cols, 0.0f);
+
+        for (int jj = 0; jj < cols; jj += BLOCK_SIZE) {
+            int jEnd = Math.min(jj + BLOCK_SIZE, cols);
+
+            for (int kk = 0; kk < size; kk += BLOCK_SIZE) {
+                int kEnd = Math.min(kk + BLOCK_SIZE, size);
+
+                for (int i = 0; i < size; i++) {
+                    int rowOffset = i * size;
+                    int resOffset = i * stride;
+
+                    for (int k = kk; k < kEnd; k++) {
+                        float weight = data[rowOffset + k];
+                        if (weight != 0.0f)
+                            FieldKernels.KERNEL.axpy(weight, matrix, k * stride + jj, result, resOffset + jj, jEnd - jj);
+                    }
+                }
+            }
+        }
+    }
+
+    /**
+     * Adds the given <strong>column</strong> of the matrix, multiplied by the <strong>factor</strong>,
+     * to the <strong>result</strong> array. The weight matrix is symmetric, so the column is read
+     * as the contiguous row with the same index.
+     *
+     * @param col       The index of the column to be added.
+     * @param factor    The scalar value every element of the column is multiplied by.
+     * @param result    The array the column is added to. Must have the size of the matrix.
+     */
+    @Override
+    public void addColumn(int col, float factor, float[] result) {
+        checkVector(result);
+
+        FieldKernels.KERNEL.axpy(factor, data, col * size, result, 0, size);
+    }
+
+    /**
+     * Checks that the <strong>vector</strong> has the size of the matrix.
+     *
+     * @param vector    The vector to be checked.
+     */
+    private void checkVector(float[] vector) {
+        if (vector.length != size)
+            throw new IllegalArgumentException("Size of vector must be " + size + " instead of " + vector.length);
+    }
+}
@@ -0,0 +1,103 @@
+package com.kpi;
+
+/**
+ * A storage of the weights between neurons of a Hopfield network.
+ * The weights are symmetric and have a zero diagonal. Implementations differ
+ * in the layout of the weights and in which connections they keep.
+ */
+public interface WeightStore {
+    /**
+     * Returns the number of neurons the weights connect.
+     * @return the number of neurons the weights connect.
+     */
+    int size();
+
+    /**
+     * Returns the weight between two neurons, or 0.0f if they are not connected.
+     *
+     * @param row   The index of the first neuron.
+     * @param col   The index of the second neuron.
+     * @return the weight between the neurons.
+     */
+    float get(int row, int col);
+
+    /**
+     * Sets all weights to 0.0f.
+     */
+    void clear();
+
+    /**
+     * Adds the outer product of the bipolar <strong>pattern</strong> with itself, multiplied by
+     * the <strong>scale</strong>, to the stored off-diagonal weights. A store that keeps the
+     * weights as counts of a unit may reject a scale that is not a whole multiple of its unit;
+     * as scale changes the unit, a product it accepted before scale may be rejected after it.
+     *
+     * @param pattern   The pattern whose outer product is added. Must have the size of the store.
+     * @param scale     The scalar value every product is multiplied by.
+     * @throws IllegalArgumentException if the store cannot represent the product with this scale.
+     */
+    void addOuterProduct(PackedPattern pattern, float scale);
+
+    /**
+     * Adds the outer product of the <strong>vector</strong> with itself, multiplied by
+     * the <strong>scale</strong>, to the stored off-diagonal weights.
+     *
+     * @param vector    The vector whose outer product is added. Must have the size of the store.
+     * @param scale     The scalar value every product is multiplied by.
+     * @throws UnsupportedOperationException if the store does not support outer products of vectors.
+     */
+    void addOuterProduct(float[] vector, float scale);
+
+    /**
+     * Tells whether the store supports addOuterProduct of a vector. A learning rule that needs
+     * it does not support the stores that do not, so a network rejects them before any update.
+     * @return true if outer products of vectors can be added to the store.
+     */
+    default boolean supportsVectorProducts() {
+        return true;
+    }
+
+    /**
+     * Multiplies every stored weight by a <strong>scalar</strong> value.
+     *
+     * @param scalar    The scalar value every weight is multiplied by.
+     */
+    void scale(float scalar);
+
+    /**
+     * Multiplies the weights by the bipolar <strong>pattern</strong> and writes the local
+     * fields into the <strong>result</strong> array.
+     *
+     * @param pattern   The pattern to be multiplied. Must have the size of the store.
+     * @param result    The array the product is written to. Must have the size of the store.
+     */
+    void multiply(PackedPattern pattern, float[] result);
+
+    /**
+     * Multiplies the weights by a matrix of states with one row per neuron and one column
+     * per pattern, in row-major order with the given stride. Only the first
+     * <strong>cols</strong> columns are multiplied.
+     *
+     * @param matrix    The matrix of states to be multiplied.
+     * @param stride    The distance between the beginnings of two rows of the states and the result.
+     * @param cols      The amount of columns to be multiplied. Must not exceed the stride.
+     * @param result    The array the product is written to. Must not be the same array as the states.
+     */
+    void multiply(float[] matrix, int stride, int cols, float[] result);
+
+    /**
+     * Adds the weights of the given neuron, multiplied by the <strong>factor</strong>,
+     * to the <strong>result</strong> array.
+     *
+     * @param col       The index of the neuron.
+     * @param factor    The scalar value every weight is multiplied by.
+     * @param result    The array the weights are added to. Must have the size of the store.
+     */
+    void addColumn(int col, float factor, float[] result);
+
+    /**
+     * Returns an independent copy of the store.
+     * @return an independent copy of the store.
+     */
+    WeightStore copy();
+}
@@ -0,0 +1,203 @@
+package com.kpi.batch;
+
+import com.kpi.Letter;
+import com.kpi.TrainedModel;
+
+import java.io.IOException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+
+/**
+ * A BatchPipeline object.
+ * Recognizes a stream of patterns with a bounded producer/consumer pipeline: a reader
+ * thread fills a bounded input queue from the source, worker threads take the records
+ * in small batches and recall them with one batched pass, and the calling thread writes
+ * the results from a bounded output queue to the sink. The queues block when full, so
+ * at most a fixed amount of records is in memory whatever the size of the input.
+ * Results are written in the order they are recognized; every result carries the index
+ * of its input. The reader checks the dimensions of every letter before queueing it: a
+ * letter that does not fit the model is reported to System.err and skipped, so it cannot
+ * fail the batch of the letters recalled together with it.
+ */
+public class BatchPipeline {
+    /** The maximum amount of records a worker recalls in one batched pass. */
+    private static final int WORKER_BATCH_SIZE = 64;
+    /** The maximum amount of iterations of one recall. */
+    private static final int MAX_ITERATIONS = 100;
+    /** The marker that ends a queue. */
+    private static final BatchRecord END = new BatchRecord(-1, "", null);
+
+    /** The trained <strong>model</strong> shared by all workers. */
+    private final TrainedModel model;
+    /** The amount of worker threads. */
+    private final int workersNum;
+    /** The capacity of each of the two queues. */
+    private final int queueCapacity;
+
+    /**
+     * Initializes a pipeline.
+     *
+     * @param model         The trained <strong>model</strong> shared by all workers.
+     * @param workersNum    The amount of worker threads.
+     * @param queueCapacity The capacity of the input and the output queue.
+     */
+    public BatchPipeline(TrainedModel model, int workersNum, int queueCapacity) {
+        if (workersNum <= 0 || queueCapacity <= 0)
+            throw new IllegalArgumentException("Amount of workers and queue capacity must be positive.");
+
+        this.model = model;
+        this.workersNum = workersNum;
+        this.queueCapacity = queueCapacity;
+    }
+
+    /**
+     * Reads all patterns of the source, recognizes them and writes the results to the sink.
+     * The records whose letters do not have the dimensions of the model are skipped.
+     * The source and the sink are not closed.
+     *
+     * @param source    The source of the input patterns.
+     * @param sink      The sink of the results.
+     * @return The amount of processed records, without the skipped ones.
+     * @throws IOException if the source cannot be read or the sink cannot be written.
+     * @throws InterruptedException if the calling thread is interrupted.
+     */
+    public long run(PatternSource source, ResultSink sink) throws IOException, InterruptedException {
+        BlockingQueue<BatchRecord> input = new ArrayBlockingQueue<>(queueCapacity);
+        BlockingQueue<BatchRecord> output = new ArrayBlockingQueue<>(queueCapacity);
+        IOException[] readError = new IOException[1];
+        RuntimeException[] workerError = new RuntimeException[1];
+
+        Thread reader = new Thread(() -> {
+            try {
+                BatchRecord record;
+                while ((record = source.next()) != null)
+                    if (fits(record))
+                        input.put(record);
+            } catch (IOException e) {
+                readError[0] = e;
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            } finally {
+                try {
+                    for (int i = 0; i < workersNum; i++)
+                        input.put(END);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                }
+            }
+        }, "batch-reader");
+
+        List<Thread> workers = new ArrayList<>();
+        for (int w = 0; w < workersNum; w++) {
+            Thread worker = new Thread(() -> {
+                try {
+                    recognize(input, output);
+                } catch (InterruptedException e) {
+                    Thread.currentThread().interrupt();
+                } catch (RuntimeException e) {
+                    synchronized (workerError) {
+                        workerError[0] = e;
+                    }
+                } finally {
+                    try {
+                        output.put(END);
+                    } catch (InterruptedException e) {
+                        Thread.currentThread().interrupt();
+                    }
+                }
+            }, "batch-worker-" + w);
+            workers.add(worker);
+        }
+
+        reader.setDaemon(true);
+        reader.start();
+        for (Thread worker : workers) {
+            worker.setDaemon(true);
+            worker.start();
+        }
+
+        long count = 0;
+        try {
+            int finished = 0;
+            while (finished < workersNum) {
+                BatchRecord record = output.take();
+                if (record == END) {
+                    finished++;
+                } else {
+                    sink.write(record);
+                    count++;
+                }
+            }
+        } finally {
+            reader.interrupt();
+            for (Thread worker : workers)
+                worker.interrupt();
+        }
+
+        reader.join();
+        if (readError[0] != null)
+            throw readError[0];
+        synchronized (workerError) {
+            if (workerError[0] != null)
+                throw workerError[0];
+        }
+        return count;
+    }
+
+    /**
+     * Checks that the letter of the record has the dimensions of the model, and reports the record otherwise.
+     *
+     * @param record    The <strong>record</strong> to be checked.
+     * @return true if the record can be recalled by the model.
+     */
+    private boolean fits(BatchRecord record) {
+        Letter letter = record.getInputLetter();
+        if (letter.getRowsNum() == model.getRowsNum() && letter.getColsNum() == model.getColsNum())
+            return true;
+
+        System.err.println(record.getName() + ": letter of " + letter.getRowsNum() + "x" + letter.getColsNum()
+                + " instead of " + model.getRowsNum() + "x" + model.getColsNum() + ", skipped.");
+        return false;
+    }
+
+    /**
+     * Takes records from the input queue in batches of up to WORKER_BATCH_SIZE, recalls
+     * them and puts them to the output queue until the end marker is taken.
+     *
+     * @param input     The queue of input records.
+     * @param output    The queue of recognized records.
+     * @throws InterruptedException if the worker is interrupted.
+     */
+    private void recognize(BlockingQueue<BatchRecord> input, BlockingQueue<BatchRecord> output)
+            throws InterruptedException {
+        List<BatchRecord> records = new ArrayList<>(WORKER_BATCH_SIZE);
+        List<Letter> letters = new ArrayList<>(WORKER_BATCH_SIZE);
+
+        boolean ended = false;
+        while (!ended) {
+            records.clear();
+            records.add(input.take());
+            input.drainTo(records, WORKER_BATCH_SIZE - 1);
+
+            int endIndex = records.indexOf(END);
+            if (endIndex >= 0) {
+                for (int i = records.size() - 1; i > endIndex; i--)
+                    input.put(records.remove(i));
+                records.remove(endIndex);
+                ended = true;
+            }
+
+            letters.clear();
+            for (BatchRecord record : records)
+                letters.add(record.getInputLetter());
+
+            List<Letter> outputLetters = model.predictBatch(letters, MAX_ITERATIONS);
+            for (int i = 0; i < records.size(); i++) {
+                records.get(i).setOutputLetter(outputLetters.get(i));
+                output.put(records.get(i));
+            }
+        }
+    }
+}
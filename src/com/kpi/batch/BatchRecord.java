@@ -0,0 +1,72 @@
+package com.kpi.batch;
+
+import com.kpi.Letter;
+
+/**
+ * A BatchRecord object.
+ * One input pattern of a batch recognition run together with its result.
+ */
+public class BatchRecord {
+    /** The position of the record in the input stream, starting from 0. */
+    private final long index;
+    /** The <strong>name</strong> of the record: its file and position within the file. */
+    private final String name;
+    /** The input <strong>letter</strong>. */
+    private final Letter inputLetter;
+    /** The recognized letter, or null if the input was not recognized. */
+    private Letter outputLetter;
+
+    /**
+     * Initializes a record of an input letter.
+     *
+     * @param index         The position of the record in the input stream.
+     * @param name          The <strong>name</strong> of the record.
+     * @param inputLetter   The input <strong>letter</strong>.
+     */
+    public BatchRecord(long index, String name, Letter inputLetter) {
+        this.index = index;
+        this.name = name;
+        this.inputLetter = inputLetter;
+    }
+
+    /**
+     * Returns the position of the record in the input stream.
+     * @return the position of the record in the input stream.
+     */
+    public long getIndex() {
+        return index;
+    }
+
+    /**
+     * Returns the name of the record.
+     * @return the name of the record.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the input letter.
+     * @return the input letter.
+     */
+    public Letter getInputLetter() {
+        return inputLetter;
+    }
+
+    /**
+     * Returns the recognized letter, or null if the input was not recognized.
+     * @return the recognized letter, or null.
+     */
+    public Letter getOutputLetter() {
+        return outputLetter;
+    }
+
+    /**
+     * Sets the recognized letter.
+     *
+     * @param outputLetter  The recognized <strong>letter</strong>, or null if the input was not recognized.
+     */
+    public void setOutputLetter(Letter outputLetter) {
+        this.outputLetter = outputLetter;
+    }
+}
@@ -0,0 +1,143 @@
+package com.kpi.batch;
+
+import com.kpi.Letter;
+
+import javax.imageio.ImageIO;
+import java.awt.image.BufferedImage;
+import java.io.BufferedInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+
+/**
+ * Reads one letter from a bitmap file: a PBM image (plain P1 or raw P4) or any image
+ * format ImageIO supports, such as PNG. Black (or dark) pixels become 1 and the others
+ * become -1. The image must have the dimensions of the letter.
+ */
+public final class BitmapReader {
+
+    private BitmapReader() {
+    }
+
+    /**
+     * Reads a letter from the bitmap file.
+     *
+     * @param path  The <strong>path</strong> of the file.
+     * @param rows  The amount of <strong>rows</strong> in the letter, the image height.
+     * @param cols  The amount of <strong>columns</strong> in the letter, the image width.
+     * @return The letter of the image.
+     * @throws IOException if the file cannot be read, is not an image or has other dimensions.
+     */
+    public static Letter read(Path path, int rows, int cols) throws IOException {
+        if (path.getFileName().toString().toLowerCase().endsWith(".pbm"))
+            return readPbm(path, rows, cols);
+
+        BufferedImage image = ImageIO.read(path.toFile());
+        if (image == null)
+            throw new IOException(path + ": unsupported image format");
+        checkDimensions(path, image.getHeight(), image.getWidth(), rows, cols);
+
+        ArrayList<Float> letter = new ArrayList<>(rows * cols);
+        for (int r = 0; r < rows; r++) {
+            for (int c = 0; c < cols; c++) {
+                int rgb = image.getRGB(c, r);
+                int brightness = ((rgb >> 16) & 0xFF) + ((rgb >> 8) & 0xFF) + (rgb & 0xFF);
+                boolean opaque = ((rgb >>> 24) & 0xFF) >= 128;
+                letter.add(opaque && brightness < 3 * 128 ? 1.0f : -1.0f);
+            }
+        }
+        return new Letter(rows, cols, letter);
+    }
+
+    /**
+     * Reads a letter from a PBM file, where 1 stands for a black pixel.
+     *
+     * @param path  The <strong>path</strong> of the file.
+     * @param rows  The expected image height.
+     * @param cols  The expected image width.
+     * @return The letter of the image.
+     * @throws IOException if the file cannot be read or is malformed.
+     */
+    private static Letter readPbm(Path path, int rows, int cols) throws IOException {
+        try (InputStream input = new BufferedInputStream(Files.newInputStream(path))) {
+            String magic = token(input, path);
+            if (!magic.equals("P1") && !magic.equals("P4"))
+                throw new IOException(path + ": not a PBM image");
+
+            int width = Integer.parseInt(token(input, path));
+            int height = Integer.parseInt(token(input, path));
+            checkDimensions(path, height, width, rows, cols);
+
+            ArrayList<Float> letter = new ArrayList<>(rows * cols);
+            if (magic.equals("P1")) {
+                for (int i = 0; i < rows * cols; i++) {
+                    int c;
+                    while ((c = input.read()) != '0' && c != '1') {
+                        if (c == '#')
+                            while ((c = input.read()) != '\n' && c != -1)
+                                ;
+                        if (c == -1)
+                            throw new IOException(path + ": unexpected end of image");
+                    }
+                    letter.add(c == '1' ? 1.0f : -1.0f);
+                }
+            } else {
+                int rowBytes = (width + 7) / 8;
+                byte[] row = new byte[rowBytes];
+                for (int r = 0; r < height; r++) {
+                    if (input.readNBytes(row, 0, rowBytes) != rowBytes)
+                        throw new IOException(path + ": unexpected end of image");
+                    for (int c = 0; c < width; c++)
+                        letter.add((row[c / 8] & (0x80 >>> (c % 8))) != 0 ? 1.0f : -1.0f);
+                }
+            }
+            return new Letter(rows, cols, letter);
+        }
+    }
+
+    /**
+     * Reads the next whitespace-separated token of a PBM header, skipping comments.
+     * Consumes the single whitespace character after the token.
+     *
+     * @param input The stream of the file.
+     * @param path  The path of the file, for error messages.
+     * @return the token.
+     * @throws IOException if the file ends before the token.
+     */
+    private static String token(InputStream input, Path path) throws IOException {
+        StringBuilder token = new StringBuilder();
+        int c;
+        while ((c = input.read()) != -1) {
+            if (c == '#' && token.length() == 0) {
+                while ((c = input.read()) != '\n' && c != -1)
+                    ;
+            } else if (Character.isWhitespace(c)) {
+                if (token.length() > 0)
+                    return token.toString();
+            } else {
+                token.append((char) c);
+            }
+        }
+        if (token.length() == 0)
+            throw new IOException(path + ": unexpected end of header");
+
+        return token.toString();
+    }
+
+    /**
+     * Checks that the image has the dimensions of the letter.
+     *
+     * @param path      The path of the file, for the error message.
+     * @param height    The height of the image.
+     * @param width     The width of the image.
+     * @param rows      The amount of rows in the letter.
+     * @param cols      The amount of columns in the letter.
+     * @throws IOException if the dimensions differ.
+     */
+    private static void checkDimensions(Path path, int height, int width, int rows, int cols) throws IOException {
+        if (height != rows || width != cols)
+            throw new IOException(path + ": image must be " + cols + "x" + rows + " instead of " + width + "x" + height);
+    }
+}
@@ -0,0 +1,86 @@
+package com.kpi.batch;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayDeque;
+import java.util.Deque;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * A FileSource object.
+ * Reads patterns from a list of files and directories one file at a time. The format is
+ * chosen by the file extension: ".txt" files hold text grids, ".bin" files hold packed
+ * patterns, and any other file is read as one bitmap (PBM, PNG and others). Directories
+ * are expanded to their regular files in name order when they are reached.
+ */
+public class FileSource implements PatternSource {
+    /** The amount of <strong>rows</strong> in every letter. */
+    private final int rows;
+    /** The amount of <strong>columns</strong> in every letter. */
+    private final int cols;
+    /** The paths that are not read yet. */
+    private final Deque<Path> paths;
+    /** The source of the file being read, or null between files. */
+    private PatternSource current;
+    /** The index the next record gets. */
+    private long nextIndex;
+
+    /**
+     * Initializes a source over the files and directories.
+     *
+     * @param paths The <strong>paths</strong> of the files and directories.
+     * @param rows  The amount of <strong>rows</strong> in every letter.
+     * @param cols  The amount of <strong>columns</strong> in every letter.
+     */
+    public FileSource(List<Path> paths, int rows, int cols) {
+        this.paths = new ArrayDeque<>(paths);
+        this.rows = rows;
+        this.cols = cols;
+    }
+
+    @Override
+    public BatchRecord next() throws IOException {
+        while (true) {
+            if (current != null) {
+                BatchRecord record = current.next();
+                if (record != null) {
+                    nextIndex = record.getIndex() + 1;
+                    return record;
+                }
+                current.close();
+                current = null;
+            }
+
+            Path path = paths.pollFirst();
+            if (path == null)
+                return null;
+
+            if (Files.isDirectory(path)) {
+                try (Stream<Path> children = Files.list(path)) {
+                    List<Path> files = children.filter(Files::isRegularFile).sorted().collect(Collectors.toList());
+                    for (int i = files.size() - 1; i >= 0; i--)
+                        paths.addFirst(files.get(i));
+                }
+                continue;
+            }
+
+            String name = path.getFileName().toString().toLowerCase();
+            if (name.endsWith(".txt")) {
+                current = new TextGridSource(Files.newBufferedReader(path), rows, cols, path.toString(), nextIndex);
+            } else if (name.endsWith(".bin")) {
+                current = new PackedSource(Files.newInputStream(path), rows, cols, path.toString(), nextIndex);
+            } else {
+                return new BatchRecord(nextIndex++, path.toString(), BitmapReader.read(path, rows, cols));
+            }
+        }
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (current != null)
+            current.close();
+    }
+}
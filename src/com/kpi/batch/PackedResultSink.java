@@ -0,0 +1,52 @@
+package com.kpi.batch;
+
+import com.kpi.PackedPattern;
+
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+
+/**
+ * A PackedResultSink object.
+ * Writes every result as a big-endian record: the index of the input (long), 1 or 0
+ * for recognized or not (byte), and the packed recognized pattern (longs, all zero if
+ * the input was not recognized).
+ */
+public class PackedResultSink implements ResultSink {
+    /** The stream of the results. */
+    private final DataOutputStream output;
+    /** The amount of words in every pattern. */
+    private final int wordsNum;
+
+    /**
+     * Initializes a sink over the stream.
+     *
+     * @param output    The stream of the results.
+     * @param size      The amount of states in every pattern.
+     */
+    public PackedResultSink(OutputStream output, int size) {
+        this.output = new DataOutputStream(output);
+        this.wordsNum = PackedPattern.wordsNum(size);
+    }
+
+    @Override
+    public void write(BatchRecord record) throws IOException {
+        output.writeLong(record.getIndex());
+        output.writeByte(record.getOutputLetter() != null ? 1 : 0);
+
+        if (record.getOutputLetter() == null) {
+            for (int w = 0; w < wordsNum; w++)
+                output.writeLong(0L);
+            return;
+        }
+
+        PackedPattern pattern = record.getOutputLetter().toPacked();
+        for (int w = 0; w < wordsNum; w++)
+            output.writeLong(pattern.getWord(w));
+    }
+
+    @Override
+    public void close() throws IOException {
+        output.close();
+    }
+}
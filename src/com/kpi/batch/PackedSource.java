@@ -0,0 +1,79 @@
+package com.kpi.batch;
+
+import com.kpi.Letter;
+import com.kpi.PackedPattern;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+
+/**
+ * A PackedSource object.
+ * Reads letters stored back to back as packed patterns: every letter takes
+ * PackedPattern.wordsNum(rows * cols) big-endian longs, bit i of the pattern
+ * being bit (i % 64) of word (i / 64). The file has no header.
+ */
+public class PackedSource implements PatternSource {
+    /** The stream of the packed letters. */
+    private final DataInputStream input;
+    /** The amount of <strong>rows</strong> in every letter. */
+    private final int rows;
+    /** The amount of <strong>columns</strong> in every letter. */
+    private final int cols;
+    /** The <strong>name</strong> of the input, used to name the records. */
+    private final String name;
+    /** The index the next record gets in the whole input stream. */
+    private final long firstIndex;
+    /** The buffer for the words of one letter. */
+    private final long[] words;
+    /** The amount of letters read so far. */
+    private long count;
+
+    /**
+     * Initializes a source over the stream.
+     *
+     * @param input         The stream of the packed letters.
+     * @param rows          The amount of <strong>rows</strong> in every letter.
+     * @param cols          The amount of <strong>columns</strong> in every letter.
+     * @param name          The <strong>name</strong> of the input.
+     * @param firstIndex    The index of the first record in the whole input stream.
+     */
+    public PackedSource(InputStream input, int rows, int cols, String name, long firstIndex) {
+        this.input = new DataInputStream(input);
+        this.rows = rows;
+        this.cols = cols;
+        this.name = name;
+        this.firstIndex = firstIndex;
+        this.words = new long[PackedPattern.wordsNum(rows * cols)];
+    }
+
+    @Override
+    public BatchRecord next() throws IOException {
+        for (int w = 0; w < words.length; w++) {
+            try {
+                words[w] = input.readLong();
+            } catch (EOFException e) {
+                if (w == 0)
+                    return null;
+                throw new IOException(name + ": truncated pattern " + count, e);
+            }
+        }
+
+        Letter letter = new Letter(rows, cols, new PackedPattern(rows * cols, words));
+        return new BatchRecord(firstIndex + count, name + "#" + count++, letter);
+    }
+
+    /**
+     * Returns the amount of letters read so far.
+     * @return the amount of letters read so far.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        input.close();
+    }
+}
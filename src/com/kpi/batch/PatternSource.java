@@ -0,0 +1,18 @@
+package com.kpi.batch;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * A stream of input patterns for batch recognition. Patterns are read one at a time,
+ * so the whole input never has to fit in memory.
+ */
+public interface PatternSource extends Closeable {
+    /**
+     * Reads the next pattern.
+     *
+     * @return The next record, or null if there are no more patterns.
+     * @throws IOException if the input cannot be read or is malformed.
+     */
+    BatchRecord next() throws IOException;
+}
@@ -0,0 +1,17 @@
+package com.kpi.batch;
+
+import java.io.Closeable;
+import java.io.IOException;
+
+/**
+ * A stream the results of batch recognition are written to, one record at a time.
+ */
+public interface ResultSink extends Closeable {
+    /**
+     * Writes the result of one record.
+     *
+     * @param record    The record with its recognized letter set.
+     * @throws IOException if the result cannot be written.
+     */
+    void write(BatchRecord record) throws IOException;
+}
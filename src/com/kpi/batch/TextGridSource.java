@@ -0,0 +1,104 @@
+package com.kpi.batch;
+
+import com.kpi.Letter;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.util.ArrayList;
+
+/**
+ * A TextGridSource object.
+ * Reads letters written as text grids in the format of Letter.toString(): one line per
+ * row, "#" for 1 and "." for -1, cells optionally separated by spaces. Letters are
+ * separated by blank lines.
+ */
+public class TextGridSource implements PatternSource {
+    /** The reader of the text. */
+    private final BufferedReader reader;
+    /** The amount of <strong>rows</strong> in every letter. */
+    private final int rows;
+    /** The amount of <strong>columns</strong> in every letter. */
+    private final int cols;
+    /** The <strong>name</strong> of the input, used to name the records. */
+    private final String name;
+    /** The index the next record gets in the whole input stream. */
+    private final long firstIndex;
+    /** The amount of letters read so far. */
+    private long count;
+    /** The number of the last line read, for error messages. */
+    private long lineNum;
+
+    /**
+     * Initializes a source over the reader.
+     *
+     * @param reader        The reader of the text.
+     * @param rows          The amount of <strong>rows</strong> in every letter.
+     * @param cols          The amount of <strong>columns</strong> in every letter.
+     * @param name          The <strong>name</strong> of the input.
+     * @param firstIndex    The index of the first record in the whole input stream.
+     */
+    public TextGridSource(BufferedReader reader, int rows, int cols, String name, long firstIndex) {
+        this.reader = reader;
+        this.rows = rows;
+        this.cols = cols;
+        this.name = name;
+        this.firstIndex = firstIndex;
+    }
+
+    @Override
+    public BatchRecord next() throws IOException {
+        ArrayList<Float> letter = new ArrayList<>(rows * cols);
+
+        String line;
+        while ((line = readLine()) != null && line.isBlank())
+            ;
+        if (line == null)
+            return null;
+
+        for (int r = 0; r < rows; r++) {
+            if (r > 0 && (line = readLine()) == null)
+                throw new IOException(name + ":" + lineNum + ": unexpected end of letter");
+
+            int cellsNum = 0;
+            for (char c : line.toCharArray()) {
+                if (c == '#' || c == '.') {
+                    letter.add(c == '#' ? 1.0f : -1.0f);
+                    cellsNum++;
+                } else if (!Character.isWhitespace(c)) {
+                    throw new IOException(name + ":" + lineNum + ": unexpected character '" + c + "'");
+                }
+            }
+            if (cellsNum != cols)
+                throw new IOException(name + ":" + lineNum + ": expected " + cols + " cells instead of " + cellsNum);
+        }
+
+        return new BatchRecord(firstIndex + count, name + "#" + count++, new Letter(rows, cols, letter));
+    }
+
+    /**
+     * Reads the next line of the text and counts it.
+     *
+     * @return the line, or null at the end of the text.
+     * @throws IOException if the text cannot be read.
+     */
+    private String readLine() throws IOException {
+        String line = reader.readLine();
+        if (line != null)
+            lineNum++;
+
+        return line;
+    }
+
+    /**
+     * Returns the amount of letters read so far.
+     * @return the amount of letters read so far.
+     */
+    public long getCount() {
+        return count;
+    }
+
+    @Override
+    public void close() throws IOException {
+        reader.close();
+    }
+}
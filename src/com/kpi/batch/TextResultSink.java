@@ -0,0 +1,37 @@
+package com.kpi.batch;
+
+import java.io.IOException;
+import java.io.Writer;
+
+/**
+ * A TextResultSink object.
+ * Writes every result as a header line "index name recognized" (or "unrecognized")
+ * followed by the recognized letter as a text grid and a blank line.
+ */
+public class TextResultSink implements ResultSink {
+    /** The <strong>writer</strong> of the text. */
+    private final Writer writer;
+
+    /**
+     * Initializes a sink over the writer.
+     *
+     * @param writer    The <strong>writer</strong> of the text.
+     */
+    public TextResultSink(Writer writer) {
+        this.writer = writer;
+    }
+
+    @Override
+    public void write(BatchRecord record) throws IOException {
+        writer.write(record.getIndex() + " " + record.getName() + " "
+                + (record.getOutputLetter() != null ? "recognized" : "unrecognized") + "\n");
+        if (record.getOutputLetter() != null)
+            writer.write(record.getOutputLetter().toString());
+        writer.write("\n");
+    }
+
+    @Override
+    public void close() throws IOException {
+        writer.close();
+    }
+}
@@ -0,0 +1,325 @@
+package com.kpi.bench;
+
+import com.kpi.HopfieldNN;
+import com.kpi.Letter;
+import com.kpi.PackedPattern;
+import com.kpi.RecallResult;
+import com.kpi.UpdatePolicy;
+
+import java.io.IOException;
+import java.io.PrintWriter;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+
+/**
+ * A benchmark of the HopfieldNN training and recall hot paths.
+ * <p>
+ * Sweeps the number of neurons N, the number of stored patterns P (as a fraction of N)
+ * and the input noise level, and measures training throughput, recall latency, the number
+ * of iterations to convergence and the amount of memory allocated per operation. Every
+ * measurement is repeated after warm-up rounds, and the results are written as CSV, one
+ * row per measurement.
+ * <p>
+ * This is a quick sweep in a single JVM, meant to spot trends while working on the code.
+ * Its numbers are not rigorous enough to compare versions: use the JMH benchmarks in the
+ * bench module for that (see README.md).
+ * <p>
+ * Usage: {@code HopfieldBenchmark [--out file] [--sizes 25,256,1024] [--loads 0.05,0.1]
+ * [--noise 0.05,0.1,0.2] [--policy SYNCHRONOUS]}
+ */
+public class HopfieldBenchmark {
+    /** The amount of rounds run before measuring, to let the JIT compile the hot paths. */
+    private static final int WARMUP_ROUNDS = 3;
+    /** The amount of measured rounds. */
+    private static final int MEASURED_ROUNDS = 5;
+    /** The amount of recall queries per round. */
+    private static final int QUERIES_NUM = 200;
+    /** The maximum amount of iterations of one recall. */
+    private static final int MAX_ITERATIONS = 100;
+    /** The header of the CSV output. */
+    private static final String CSV_HEADER =
+            "benchmark,policy,neurons,patterns,noise,ops,ns_per_op,p50_ns,p99_ns,bytes_per_op,mean_iterations,recognized";
+
+    /** The thread bean used to read the amount of memory allocated by the benchmark thread. */
+    private final com.sun.management.ThreadMXBean threadBean =
+            (com.sun.management.ThreadMXBean) ManagementFactory.getThreadMXBean();
+    /** The source of the benchmark patterns and noise. It is seeded so runs are comparable. */
+    private final Random random = new Random(42);
+
+    /**
+     * Runs the benchmark sweep and writes the results.
+     *
+     * @param args  The options of the sweep, see the class description.
+     * @throws IOException if the output file cannot be written.
+     */
+    public static void main(String[] args) throws IOException {
+        Path out = Paths.get("bench_output.txt");
+        int[] sizes = {25, 256, 1024};
+        double[] loads = {0.05, 0.1};
+        double[] noises = {0.05, 0.1, 0.2};
+        UpdatePolicy policy = UpdatePolicy.SYNCHRONOUS;
+
+        for (int i = 0; i + 1 < args.length; i += 2) {
+            switch (args[i]) {
+                case "--out":
+                    out = Paths.get(args[i + 1]);
+                    break;
+                case "--sizes":
+                    sizes = Arrays.stream(args[i + 1].split(",")).mapToInt(Integer::parseInt).toArray();
+                    break;
+                case "--loads":
+                    loads = Arrays.stream(args[i + 1].split(",")).mapToDouble(Double::parseDouble).toArray();
+                    break;
+                case "--noise":
+                    noises = Arrays.stream(args[i + 1].split(",")).mapToDouble(Double::parseDouble).toArray();
+                    break;
+                case "--policy":
+                    policy = UpdatePolicy.valueOf(args[i + 1]);
+                    break;
+                default:
+                    throw new IllegalArgumentException("Unknown option " + args[i]);
+            }
+        }
+
+        HopfieldBenchmark benchmark = new HopfieldBenchmark();
+        try (PrintWriter writer = new PrintWriter(Files.newBufferedWriter(out))) {
+            writer.println(CSV_HEADER);
+
+            for (int size : sizes) {
+                for (double load : loads) {
+                    int patternsNum = Math.max(1, (int) Math.round(load * size));
+                    List<PackedPattern> patterns = benchmark.randomPatterns(size, patternsNum);
+
+                    benchmark.report(writer, benchmark.training(size, patterns, policy));
+                    for (double noise : noises)
+                        benchmark.report(writer, benchmark.recall(size, patterns, noise, policy));
+                }
+            }
+        }
+        System.out.println("Benchmark results are written to " + out.toAbsolutePath());
+    }
+
+    /**
+     * Measures how long it takes to train a network on all patterns.
+     *
+     * @param size      The number of neurons.
+     * @param patterns  The patterns to be stored.
+     * @param policy    The update policy of the network.
+     * @return The measurement.
+     */
+    private Result training(int size, List<PackedPattern> patterns, UpdatePolicy policy) {
+        Result result = new Result("train", policy, size, patterns.size(), 0.0);
+        long[] times = new long[MEASURED_ROUNDS];
+        long allocated = 0;
+
+        for (int round = -WARMUP_ROUNDS; round < MEASURED_ROUNDS; round++) {
+            long allocatedBefore = allocatedBytes();
+            long start = System.nanoTime();
+
+            network(size, patterns, policy);
+
+            long time = System.nanoTime() - start;
+            if (round >= 0) {
+                times[round] = time;
+                allocated += allocatedBytes() - allocatedBefore;
+            }
+        }
+
+        result.ops = (long) MEASURED_ROUNDS * patterns.size();
+        result.setTimes(times, patterns.size());
+        result.bytesPerOp = (double) allocated / result.ops;
+        return result;
+    }
+
+    /**
+     * Measures the latency of recalling noisy copies of the stored patterns.
+     *
+     * @param size      The number of neurons.
+     * @param patterns  The stored patterns.
+     * @param noise     The fraction of states flipped in every query.
+     * @param policy    The update policy of the network.
+     * @return The measurement.
+     */
+    private Result recall(int size, List<PackedPattern> patterns, double noise, UpdatePolicy policy) {
+        Result result = new Result("recall", policy, size, patterns.size(), noise);
+        HopfieldNN hopfieldNN = network(size, patterns, policy);
+
+        List<PackedPattern> queries = new ArrayList<>();
+        for (int q = 0; q < QUERIES_NUM; q++)
+            queries.add(noisy(patterns.get(q % patterns.size()), noise));
+
+        long[] times = new long[MEASURED_ROUNDS * QUERIES_NUM];
+        long allocated = 0;
+        int recognized = 0;
+
+        for (int round = -WARMUP_ROUNDS; round < MEASURED_ROUNDS; round++) {
+            // The allocations are read once per round: the probe is too slow to sit inside a timed recall.
+            long allocatedBefore = allocatedBytes();
+            for (int q = 0; q < QUERIES_NUM; q++) {
+                long start = System.nanoTime();
+
+                PackedPattern output = hopfieldNN.predict(queries.get(q), MAX_ITERATIONS);
+
+                long time = System.nanoTime() - start;
+                if (round >= 0) {
+                    times[round * QUERIES_NUM + q] = time;
+                    if (output != null && output.equals(patterns.get(q % patterns.size())))
+                        recognized++;
+                }
+            }
+            if (round >= 0)
+                allocated += allocatedBytes() - allocatedBefore;
+        }
+
+        result.ops = times.length;
+        result.setTimes(times, 1);
+        result.bytesPerOp = (double) allocated / result.ops;
+        result.recognized = (double) recognized / result.ops;
+        result.meanIterations = meanIterations(hopfieldNN, queries);
+        return result;
+    }
+
+    /**
+     * Counts the iterations every query needs to converge to a stored pattern. This is done
+     * outside the measured rounds.
+     *
+     * @param hopfieldNN    The trained network.
+     * @param queries       The recall queries.
+     * @return The mean amount of iterations over the queries that converged.
+     */
+    private double meanIterations(HopfieldNN hopfieldNN, List<PackedPattern> queries) {
+        long iterations = 0;
+        int converged = 0;
+
+        for (PackedPattern query : queries) {
+            RecallResult result = hopfieldNN.recall(query, MAX_ITERATIONS);
+            if (result.isRecognized()) {
+                iterations += result.getIterations();
+                converged++;
+            }
+        }
+        return (converged == 0) ? Double.NaN : (double) iterations / converged;
+    }
+
+    /**
+     * Creates a network of the given size and stores the patterns in it.
+     *
+     * @param size      The number of neurons.
+     * @param patterns  The patterns to be stored.
+     * @param policy    The update policy of the network.
+     * @return The trained network.
+     */
+    private HopfieldNN network(int size, List<PackedPattern> patterns, UpdatePolicy policy) {
+        HopfieldNN hopfieldNN = new HopfieldNN(1, size);
+        hopfieldNN.setUpdatePolicy(policy);
+        for (PackedPattern pattern : patterns)
+            hopfieldNN.addLetter(new Letter(1, size, pattern));
+
+        return hopfieldNN;
+    }
+
+    /**
+     * Generates random bipolar patterns.
+     *
+     * @param size          The amount of states in a pattern.
+     * @param patternsNum   The amount of patterns.
+     * @return The generated patterns.
+     */
+    private List<PackedPattern> randomPatterns(int size, int patternsNum) {
+        List<PackedPattern> patterns = new ArrayList<>();
+        for (int p = 0; p < patternsNum; p++) {
+            PackedPattern pattern = new PackedPattern(size);
+            for (int i = 0; i < size; i++)
+                pattern.set(i, random.nextBoolean());
+            patterns.add(pattern);
+        }
+        return patterns;
+    }
+
+    /**
+     * Returns a copy of the pattern with the given fraction of states flipped.
+     *
+     * @param pattern   The original pattern.
+     * @param noise     The fraction of states to flip.
+     * @return The noisy copy.
+     */
+    private PackedPattern noisy(PackedPattern pattern, double noise) {
+        PackedPattern copy = new PackedPattern(pattern);
+        for (int i = 0; i < copy.size(); i++)
+            if (random.nextDouble() < noise)
+                copy.set(i, !copy.get(i));
+
+        return copy;
+    }
+
+    /**
+     * Returns the amount of memory allocated by the current thread so far.
+     * @return the amount of allocated bytes.
+     */
+    private long allocatedBytes() {
+        return threadBean.getThreadAllocatedBytes(Thread.currentThread().getId());
+    }
+
+    /**
+     * Writes the measurement to the CSV output and to the console.
+     *
+     * @param writer    The CSV output.
+     * @param result    The measurement.
+     */
+    private void report(PrintWriter writer, Result result) {
+        String row = String.format(Locale.ROOT, "%s,%s,%d,%d,%.3f,%d,%.1f,%d,%d,%.1f,%.2f,%.3f",
+                result.benchmark, result.policy, result.neurons, result.patterns, result.noise, result.ops,
+                result.nsPerOp, result.p50, result.p99, result.bytesPerOp, result.meanIterations, result.recognized);
+        writer.println(row);
+        writer.flush();
+        System.out.println(row);
+    }
+
+    /**
+     * One row of the benchmark output.
+     */
+    private static class Result {
+        final String benchmark;
+        final UpdatePolicy policy;
+        final int neurons;
+        final int patterns;
+        final double noise;
+        long ops;
+        double nsPerOp;
+        long p50;
+        long p99;
+        double bytesPerOp;
+        double meanIterations = Double.NaN;
+        double recognized = Double.NaN;
+
+        Result(String benchmark, UpdatePolicy policy, int neurons, int patterns, double noise) {
+            this.benchmark = benchmark;
+            this.policy = policy;
+            this.neurons = neurons;
+            this.patterns = patterns;
+            this.noise = noise;
+        }
+
+        /**
+         * Calculates the mean time per operation and the percentiles of the measured times.
+         *
+         * @param times         The measured times in nanoseconds.
+         * @param opsPerTime    The amount of operations covered by one measured time.
+         */
+        void setTimes(long[] times, int opsPerTime) {
+            long[] sorted = times.clone();
+            Arrays.sort(sorted);
+
+            nsPerOp = (double) Arrays.stream(times).sum() / ((long) times.length * opsPerTime);
+            p50 = sorted[sorted.length / 2] / opsPerTime;
+            p99 = sorted[Math.min(sorted.length - 1, (int) (sorted.length * 0.99))] / opsPerTime;
+        }
+    }
+}
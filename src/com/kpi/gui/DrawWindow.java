@@ -53,7 +53,7 @@ public class DrawWindow extends JFrame implements ActionListener {
         drawPanel.setBorder(BorderFactory.createLineBorder(new Color(152, 75, 108), 3));
 
         tiles = new Vector<>();
-        for (int i = 0; i < 5*5; i++) {
+        for (int i = 0; i < letterToFill.size(); i++) {
             MyButton tile = new MyButton(Color.WHITE, new Color(93, 25, 45));
             tile.setBorder(BorderFactory.createLineBorder(new Color(152, 75, 108)));
             tiles.add(tile);
@@ -0,0 +1,18 @@
+package com.kpi.gui;
+
+import javax.swing.*;
+import java.awt.*;
+import java.util.concurrent.ConcurrentHashMap;
+
+public final class Images {
+    private static final String SOURCES_DIR = "src/com/kpi/gui/sources/";
+
+    private static final ConcurrentHashMap<String, Image> cache = new ConcurrentHashMap<>();
+
+    private Images() {
+    }
+
+    public static Image get(String name) {
+        return cache.computeIfAbsent(name, n -> new ImageIcon(SOURCES_DIR + n).getImage());
+    }
+}
@@ -0,0 +1,45 @@
+package com.kpi.gui;
+
+import com.kpi.Letter;
+
+import javax.swing.*;
+import java.awt.*;
+
+public class LetterPanel extends JPanel {
+    private static final long serialVersionUID = 1L;
+
+    private static final Color FILLED_COLOR = new Color(93, 25, 45);
+    private static final Color EMPTY_COLOR = Color.WHITE;
+
+    private final JLabel[] tiles;
+    private final boolean[] filled;
+
+    public LetterPanel(Letter letter, int letterSize) {
+        super(new GridLayout(letter.getRowsNum(), letter.getColsNum(), 3, 3));
+        setPreferredSize(new Dimension(letterSize, letterSize));
+        setBorder(BorderFactory.createLineBorder(new Color(152, 75, 108), 3));
+
+        tiles = new JLabel[letter.size()];
+        filled = new boolean[letter.size()];
+        for (int i = 0; i < tiles.length; i++) {
+            JLabel tile = new JLabel();
+            tile.setBackground(EMPTY_COLOR);
+            tile.setOpaque(true);
+            tiles[i] = tile;
+
+            add(tile);
+        }
+
+        setLetter(letter);
+    }
+
+    public void setLetter(Letter letter) {
+        for (int i = 0; i < tiles.length; i++) {
+            boolean isFilled = letter.getLetter().get(i) == 1.0f;
+            if (isFilled != filled[i]) {
+                filled[i] = isFilled;
+                tiles[i].setBackground(isFilled ? FILLED_COLOR : EMPTY_COLOR);
+            }
+        }
+    }
+}
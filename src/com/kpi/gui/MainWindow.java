@@ -2,6 +2,7 @@ package com.kpi.gui;
 
 import com.kpi.HopfieldNN;
 import com.kpi.Letter;
+import com.kpi.PackedPattern;
 
 import javax.swing.*;
 import javax.swing.border.BevelBorder;
@@ -9,6 +10,10 @@ import java.awt.*;
 import java.awt.event.ActionEvent;
 import java.awt.event.ActionListener;
 import java.util.Vector;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
 
 public class MainWindow extends JFrame implements ActionListener, UpdateLetterCallback {
     private static final int WINDOW_WIDTH  = 700;
@@ -18,25 +23,48 @@ public class MainWindow extends JFrame implements ActionListener, UpdateLetterCa
     private static final int LIBRARY_LETTER_SIZE = 100;
     private static final int BUTTON_WIDTH = 200;
     private static final int BUTTON_HEIGHT = 40;
+    private static final int PROGRESS_HEIGHT = 20;
 
     private static final int LIBRARY_SIZE = 3;
+    private static final int MAX_ITERATIONS = 100;
 
     private final ImagePanel predictPanel;
     private final JPanel addPanel;
 
+    private JButton predButton;
+    private JProgressBar progressBar;
+    private LetterPanel inputLetterPanel;
+    private LetterPanel outputLetterPanel;
+    private final Vector<LetterPanel> libraryLetterPanels;
+
     private Vector<Letter> letterLibrary;
     private Letter inputLetter;
     private Letter outputLetter;
     private HopfieldNN hopfieldNN;
 
+    // All work with the network runs on this thread, one task at a time, so the event thread never waits for it.
+    private final ExecutorService networkExecutor;
+    private SwingWorker<PackedPattern, Void> recognitionWorker;
+
     public MainWindow() {
+        this(Letter.DEFAULT_ROWS, Letter.DEFAULT_COLUMNS);
+    }
+
+    public MainWindow(int letterRows, int letterCols) {
         letterLibrary = new Vector<>();
         for (int i = 0; i < LIBRARY_SIZE; i++)
-            letterLibrary.add(new Letter());
+            letterLibrary.add(new Letter(letterRows, letterCols));
+
+        inputLetter = new Letter(letterRows, letterCols);
+        outputLetter = new Letter(letterRows, letterCols);
+        hopfieldNN = new HopfieldNN(letterRows, letterCols);
+        libraryLetterPanels = new Vector<>();
 
-        inputLetter = new Letter();
-        outputLetter = new Letter();
-        hopfieldNN = new HopfieldNN();
+        networkExecutor = Executors.newSingleThreadExecutor(runnable -> {
+            Thread thread = new Thread(runnable, "hopfield-network");
+            thread.setDaemon(true);
+            return thread;
+        });
 
         setTitle("Letter recognition. Hopfield Network");
         setDefaultCloseOperation(JFrame.EXIT_ON_CLOSE);
@@ -47,7 +75,7 @@ public class MainWindow extends JFrame implements ActionListener, UpdateLetterCa
         getContentPane().setLayout(new BoxLayout(getContentPane(), BoxLayout.PAGE_AXIS));
 
         predictPanel = new ImagePanel();
-        predictPanel.setImage(new ImageIcon("src/com/kpi/gui/sources/background.png").getImage());
+        predictPanel.setImage(Images.get("background.png"));
         predictPanel.setPreferredSize(new Dimension(WINDOW_WIDTH, PREDICT_PANEL_HEIGHT));
         predictPanel.setBorder(BorderFactory.createLineBorder(new Color(152, 75, 108), 5));
         showPredictPanelContent();
@@ -58,10 +86,12 @@ public class MainWindow extends JFrame implements ActionListener, UpdateLetterCa
         addPanel.setBackground(new Color(233, 151, 176));
         showAddPanelContent();
         add(addPanel);
+
+        revalidate();
     }
 
     private void showPredictPanelContent() {
-        JButton predButton = new JButton("Recognize");
+        predButton = new JButton("Recognize");
         predButton.setPreferredSize(new Dimension(BUTTON_WIDTH, BUTTON_HEIGHT));
         predButton.setBorder(BorderFactory.createBevelBorder(BevelBorder.RAISED));
         predButton.setFont(predButton.getFont().deriveFont(20.0f));
@@ -71,17 +101,28 @@ public class MainWindow extends JFrame implements ActionListener, UpdateLetterCa
 
         predictPanel.add(predButton);
 
+        progressBar = new JProgressBar();
+        progressBar.setPreferredSize(new Dimension(WINDOW_WIDTH - 2 * BUTTON_WIDTH, PROGRESS_HEIGHT));
+        progressBar.setStringPainted(true);
+        progressBar.setString("");
+        progressBar.setVisible(false);
+
+        predictPanel.add(progressBar);
+
         ImagePanel arrowImg = new ImagePanel();
-        arrowImg.setImage(new ImageIcon("src/com/kpi/gui/sources/arrow.png").getImage());
+        arrowImg.setImage(Images.get("arrow.png"));
         arrowImg.setOpaque(false);
         arrowImg.setPreferredSize(new Dimension(100, 100));
 
+        inputLetterPanel = new LetterPanel(inputLetter, LETTER_SIZE);
+        outputLetterPanel = new LetterPanel(outputLetter, LETTER_SIZE);
+
         JPanel lettersPanel = new JPanel();
         lettersPanel.setPreferredSize(new Dimension(WINDOW_WIDTH, LETTER_SIZE));
         lettersPanel.setLayout(new FlowLayout(FlowLayout.CENTER, 20, 0));
-        lettersPanel.add(letterPanel(inputLetter, LETTER_SIZE));
+        lettersPanel.add(inputLetterPanel);
         lettersPanel.add(arrowImg);
-        lettersPanel.add(letterPanel(outputLetter, LETTER_SIZE));
+        lettersPanel.add(outputLetterPanel);
         lettersPanel.setOpaque(false);
 
         predictPanel.add(lettersPanel);
@@ -101,29 +142,25 @@ public class MainWindow extends JFrame implements ActionListener, UpdateLetterCa
         JPanel lettersInLibrary = new JPanel();
         lettersInLibrary.setPreferredSize(new Dimension(WINDOW_WIDTH, LIBRARY_LETTER_SIZE));
         lettersInLibrary.setLayout(new FlowLayout(FlowLayout.CENTER, 100, 0));
-        for (Letter letter : letterLibrary)
-            lettersInLibrary.add(letterPanel(letter, LIBRARY_LETTER_SIZE));
+        for (Letter letter : letterLibrary) {
+            LetterPanel letterPanel = new LetterPanel(letter, LIBRARY_LETTER_SIZE);
+            libraryLetterPanels.add(letterPanel);
+            lettersInLibrary.add(letterPanel);
+        }
         lettersInLibrary.setOpaque(false);
 
         addPanel.add(lettersInLibrary);
     }
 
-    private JPanel letterPanel(Letter letter, int letterSize) {
-        JPanel letterPanel = new JPanel(new GridLayout(letter.getRowsNum(), letter.getColsNum(), 3, 3));
-        letterPanel.setPreferredSize(new Dimension(letterSize, letterSize));
-        letterPanel.setBorder(BorderFactory.createLineBorder(new Color(152, 75, 108), 3));
-
-        Vector<JLabel> tiles = new Vector<>();
-        for (Float i : letter.getLetter()) {
-            JLabel tile = new JLabel();
-            tile.setBackground(i == 1.0f ? new Color(93, 25, 45) : Color.WHITE);
-            tile.setOpaque(true);
-            tiles.add(tile);
-
-            letterPanel.add(tile);
-        }
+    private void showProgress(String message) {
+        progressBar.setString(message);
+        progressBar.setIndeterminate(true);
+        progressBar.setVisible(true);
+    }
 
-        return letterPanel;
+    private void hideProgress() {
+        progressBar.setIndeterminate(false);
+        progressBar.setVisible(false);
     }
 
     private Letter getLastEmpty() {
@@ -139,6 +176,10 @@ public class MainWindow extends JFrame implements ActionListener, UpdateLetterCa
         if (e.getActionCommand().equals("recognize letter")) {
             DrawWindow drawWindow = new DrawWindow(this, true, inputLetter);
 
+        } else if (e.getActionCommand().equals("cancel recognition")) {
+            if (recognitionWorker != null)
+                recognitionWorker.cancel(true);
+
         } else if (e.getActionCommand().equals("add letter")) {
             DrawWindow drawWindow = new DrawWindow(this, false, getLastEmpty());
         }
@@ -146,33 +187,82 @@ public class MainWindow extends JFrame implements ActionListener, UpdateLetterCa
 
     @Override
     public void updatePredictPanelCallback() {
-        predictPanel.removeAll();
-        predictPanel.revalidate();
-        predictPanel.repaint();
-
-        try {
-            hopfieldNN.train();
-            outputLetter = hopfieldNN.predict(inputLetter);
-        } catch (NullPointerException e) {
-            JOptionPane.showMessageDialog(null,
-                    "Unfortunately, your letter was not recognized. ((",
-                    "Recognition error",
-                    JOptionPane.WARNING_MESSAGE);
-
-            outputLetter = new Letter();
-        }
-
-        showPredictPanelContent();
+        if (recognitionWorker != null)
+            recognitionWorker.cancel(true);
+
+        inputLetterPanel.setLetter(inputLetter);
+
+        PackedPattern inputPattern = inputLetter.toPacked();
+        recognitionWorker = new SwingWorker<>() {
+            @Override
+            protected PackedPattern doInBackground() {
+                return hopfieldNN.predict(inputPattern, MAX_ITERATIONS);
+            }
+
+            @Override
+            protected void done() {
+                if (recognitionWorker != this)
+                    return;
+
+                recognitionWorker = null;
+                hideProgress();
+                predButton.setText("Recognize");
+                predButton.setActionCommand("recognize letter");
+
+                PackedPattern outputPattern;
+                try {
+                    outputPattern = get();
+                } catch (CancellationException | InterruptedException e) {
+                    return;
+                } catch (ExecutionException e) {
+                    // A failed recognition is shown like an unrecognized letter instead of
+                    // throwing on the event thread.
+                    System.err.println("Recognition failed: " + e.getCause());
+                    outputPattern = null;
+                }
+
+                if (outputPattern == null) {
+                    JOptionPane.showMessageDialog(null,
+                            "Unfortunately, your letter was not recognized. ((",
+                            "Recognition error",
+                            JOptionPane.WARNING_MESSAGE);
+
+                    outputLetter = new Letter(hopfieldNN.getRowsNum(), hopfieldNN.getColsNum());
+                } else {
+                    outputLetter = new Letter(hopfieldNN.getRowsNum(), hopfieldNN.getColsNum(), outputPattern);
+                }
+                outputLetterPanel.setLetter(outputLetter);
+            }
+        };
+
+        showProgress("Recognizing...");
+        predButton.setText("Cancel");
+        predButton.setActionCommand("cancel recognition");
+        networkExecutor.execute(recognitionWorker);
     }
 
     @Override
     public void updateAddPanelCallback(Letter updatedLetter) {
-        addPanel.removeAll();
-        addPanel.revalidate();
-        addPanel.repaint();
-
-        hopfieldNN.addLetter(updatedLetter);
-
-        showAddPanelContent();
+        for (int i = 0; i < letterLibrary.size(); i++)
+            if (letterLibrary.get(i) == updatedLetter)
+                libraryLetterPanels.get(i).setLetter(updatedLetter);
+
+        Letter letter = new Letter(updatedLetter.getRowsNum(), updatedLetter.getColsNum(), updatedLetter.toPacked());
+        showProgress("Training...");
+        networkExecutor.execute(new SwingWorker<Void, Void>() {
+            @Override
+            protected Void doInBackground() {
+                hopfieldNN.addLetter(letter);
+                return null;
+            }
+
+            @Override
+            protected void done() {
+                if (recognitionWorker == null)
+                    hideProgress();
+                else
+                    showProgress("Recognizing...");
+            }
+        });
     }
 }
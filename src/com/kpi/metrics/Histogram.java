@@ -0,0 +1,108 @@
+package com.kpi.metrics;
+
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A lock-free histogram of non-negative integer values with power-of-two buckets:
+ * bucket 0 counts the value 0 and bucket b counts the values from 2<sup>b-1</sup> to
+ * 2<sup>b</sup> - 1. Recording a value is one atomic increment and never blocks, so the
+ * histogram can be updated from many threads in a hot loop.
+ */
+public class Histogram {
+    /** The amount of buckets, enough for any int value. */
+    private static final int BUCKETS_NUM = Integer.SIZE;
+    /** The amount of values recorded in every bucket. */
+    private final AtomicLongArray buckets = new AtomicLongArray(BUCKETS_NUM);
+    /** The sum of all recorded values. */
+    private final LongAdder sum = new LongAdder();
+
+    /**
+     * Records one value. Negative values are recorded as 0.
+     *
+     * @param value The <strong>value</strong> to be recorded.
+     */
+    public void record(int value) {
+        int bucket = (value <= 0) ? 0 : Integer.SIZE - Integer.numberOfLeadingZeros(value);
+        buckets.incrementAndGet(Math.min(bucket, BUCKETS_NUM - 1));
+        sum.add(Math.max(value, 0));
+    }
+
+    /**
+     * Returns the amount of recorded values.
+     * @return the amount of recorded values.
+     */
+    public long count() {
+        long count = 0;
+        for (int b = 0; b < BUCKETS_NUM; b++)
+            count += buckets.get(b);
+
+        return count;
+    }
+
+    /**
+     * Returns the mean of the recorded values.
+     * @return the mean of the recorded values, or NaN if none were recorded.
+     */
+    public double mean() {
+        long count = count();
+        return (count == 0) ? Double.NaN : (double) sum.sum() / count;
+    }
+
+    /**
+     * Returns the smallest bucket bound that at least the given fraction of the recorded values do not exceed.
+     *
+     * @param quantile  The fraction of the values, from 0.0 to 1.0.
+     * @return the upper bound of the bucket of the quantile, or 0 if no values were recorded.
+     */
+    public long quantile(double quantile) {
+        long count = count();
+        long threshold = (long) Math.ceil(quantile * count);
+
+        long seen = 0;
+        for (int b = 0; b < BUCKETS_NUM; b++) {
+            seen += buckets.get(b);
+            if (seen >= threshold && seen > 0)
+                return upperBound(b);
+        }
+        return 0;
+    }
+
+    /**
+     * Writes the histogram in the Prometheus text format: one cumulative line per bucket
+     * up to the last non-empty one, then the sum and the count. Every bucket is read once,
+     * so the +Inf bucket and the count are the same value and never below the other buckets,
+     * even while values are being recorded.
+     *
+     * @param name      The <strong>name</strong> of the metric.
+     * @param builder   The builder the lines are appended to.
+     */
+    public void export(String name, StringBuilder builder) {
+        long[] counts = new long[BUCKETS_NUM];
+        int last = 0;
+        for (int b = 0; b < BUCKETS_NUM; b++) {
+            counts[b] = buckets.get(b);
+            if (counts[b] != 0)
+                last = b;
+        }
+
+        long cumulative = 0;
+        for (int b = 0; b <= last; b++) {
+            cumulative += counts[b];
+            builder.append(name).append("_bucket{le=\"").append(upperBound(b)).append("\"} ").append(cumulative).append('\n');
+        }
+        builder.append(name).append("_bucket{le=\"+Inf\"} ").append(cumulative).append('\n');
+        builder.append(name).append("_sum ").append(sum.sum()).append('\n');
+        builder.append(name).append("_count ").append(cumulative).append('\n');
+    }
+
+    /**
+     * Returns the largest value counted by the bucket.
+     *
+     * @param bucket    The index of the bucket.
+     * @return the largest value of the bucket.
+     */
+    private static long upperBound(int bucket) {
+        return (1L << bucket) - 1;
+    }
+}
@@ -0,0 +1,123 @@
+package com.kpi.metrics;
+
+import com.kpi.RecallListener;
+import com.kpi.RecallStatus;
+
+import java.util.Locale;
+import java.util.concurrent.atomic.DoubleAdder;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A RecallListener that collects metrics of the recalls: how they ended (stored pattern,
+ * spurious attractor or timeout), the iterations to convergence, the neurons flipped per
+ * iteration and the energy of the states. All counters are lock-free, so one instance can
+ * be shared by every thread that uses a model, and read or exported at any time.
+ * <p>
+ * A growing share of spurious attractors and timeouts is the sign of a network loaded beyond
+ * its capacity; the iteration histogram shows how large the iteration limit really has to be.
+ */
+public class RecallMetrics implements RecallListener {
+    /** The amount of recalls per way they ended, indexed by the ordinal of the status. */
+    private final LongAdder[] recalls = new LongAdder[RecallStatus.values().length];
+    /** The amount of iterations per recall. */
+    private final Histogram iterations = new Histogram();
+    /** The amount of neurons flipped per iteration. */
+    private final Histogram flipped = new Histogram();
+    /** The sum of the energies of the states the iterations started from. */
+    private final DoubleAdder energy = new DoubleAdder();
+
+    /**
+     * Initializes the metrics with all counters set to 0.
+     */
+    public RecallMetrics() {
+        for (int i = 0; i < recalls.length; i++)
+            recalls[i] = new LongAdder();
+    }
+
+    @Override
+    public void iterationFinished(int iteration, int flipped, float energy) {
+        this.flipped.record(flipped);
+        this.energy.add(energy);
+    }
+
+    @Override
+    public void recallFinished(RecallStatus status, int iterations) {
+        recalls[status.ordinal()].increment();
+        this.iterations.record(iterations);
+    }
+
+    /**
+     * Returns the amount of recalls that ended the given way.
+     *
+     * @param status    The way the recalls ended.
+     * @return the amount of recalls.
+     */
+    public long getRecalls(RecallStatus status) {
+        return recalls[status.ordinal()].sum();
+    }
+
+    /**
+     * Returns the amount of all finished recalls.
+     * @return the amount of all finished recalls.
+     */
+    public long getRecalls() {
+        long sum = 0;
+        for (LongAdder counter : recalls)
+            sum += counter.sum();
+
+        return sum;
+    }
+
+    /**
+     * Returns the histogram of the amount of iterations per recall.
+     * @return the histogram of the amount of iterations per recall.
+     */
+    public Histogram getIterations() {
+        return iterations;
+    }
+
+    /**
+     * Returns the histogram of the amount of neurons flipped per iteration.
+     * @return the histogram of the amount of neurons flipped per iteration.
+     */
+    public Histogram getFlipped() {
+        return flipped;
+    }
+
+    /**
+     * Returns the mean energy of the states the iterations started from.
+     * @return the mean energy, or NaN if no iterations were done.
+     */
+    public double getMeanEnergy() {
+        long count = flipped.count();
+        return (count == 0) ? Double.NaN : energy.sum() / count;
+    }
+
+    /**
+     * Exports all metrics in the Prometheus text format.
+     * @return the metrics, one sample per line.
+     */
+    public String export() {
+        StringBuilder builder = new StringBuilder();
+        builder.append("# TYPE hopfield_recalls_total counter\n");
+        for (RecallStatus status : RecallStatus.values())
+            builder.append("hopfield_recalls_total{status=\"").append(status.name().toLowerCase(Locale.ROOT))
+                    .append("\"} ").append(getRecalls(status)).append('\n');
+
+        builder.append("# TYPE hopfield_recall_iterations histogram\n");
+        iterations.export("hopfield_recall_iterations", builder);
+        builder.append("# TYPE hopfield_recall_flipped_neurons histogram\n");
+        flipped.export("hopfield_recall_flipped_neurons", builder);
+        // The energies are mostly negative, so their sum is not a counter: it is exported as a
+        // summary without quantiles, with one observation per iteration.
+        builder.append("# TYPE hopfield_recall_energy summary\n");
+        builder.append("hopfield_recall_energy_sum ").append(energy.sum()).append('\n');
+        builder.append("hopfield_recall_energy_count ").append(flipped.count()).append('\n');
+        return builder.toString();
+    }
+
+    @Override
+    public String toString() {
+        return export();
+    }
+}
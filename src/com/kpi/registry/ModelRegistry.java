@@ -0,0 +1,450 @@
+package com.kpi.registry;
+
+import com.kpi.ModelFile;
+import com.kpi.PackedPattern;
+import com.kpi.RecallResult;
+import com.kpi.RecallStatus;
+import com.kpi.TrainedModel;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.Locale;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.LongAdder;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.regex.Pattern;
+
+/**
+ * A ModelRegistry object.
+ * Serves many independent trained models by name from one process. A model named "name"
+ * is the model file "name.hnn" in the directory of the registry; it is loaded the first
+ * time it is requested and stays loaded until it is evicted.
+ * <p>
+ * The loaded models must fit into a memory budget, counted as the sizes of their model
+ * files (the weights are mapped, not copied, so this is the memory the pages of a model
+ * take when it is in use). When a load exceeds the budget, the models that were requested
+ * least recently are evicted until the rest fits; a single model larger than the budget
+ * is still loaded, alone. An evicted model is simply dropped: requests that already hold
+ * it finish on it, and the next request loads it again.
+ * <p>
+ * The budget counts the bytes of the files, not the resident memory of the process. The
+ * pages of a mapped file are read in only when they are used, and the mapping of an evicted
+ * model is released by the garbage collector once nothing refers to the model, not at the
+ * eviction, so for a while the evicted models still hold their mappings.
+ * <p>
+ * There is no lock on the way of a request to a loaded model: models are found in a
+ * concurrent map and a TrainedModel recalls from any number of threads at once. A load
+ * locks only the model it loads, so models load in parallel and requests to other models
+ * never wait for it; evictions are serialized by their own lock. The map holds only the
+ * models that are loaded or being loaded: a model leaves it when it is evicted or when its
+ * file cannot be read, so requests for many names or for missing files do not make it grow.
+ * Every model keeps its usage statistics and the metrics of its recalls in ModelStats. The
+ * statistics survive the eviction of the model: the registry keeps the statistics of up to
+ * EVICTED_STATS_CAPACITY evicted models, dropping those evicted longest ago, and hands them
+ * back to the model when it is loaded again, so a model that is loaded and evicted over and
+ * over shows it in its counts. The registry also counts the loads and evictions of all models.
+ */
+public class ModelRegistry {
+    /** The extension of the model files. */
+    public static final String EXTENSION = ".hnn";
+    /** The names a model can have: they cannot leave the directory of the registry. */
+    private static final Pattern NAME = Pattern.compile("[A-Za-z0-9_][A-Za-z0-9_.-]*");
+    /** The largest amount of evicted models whose statistics are kept. */
+    public static final int EVICTED_STATS_CAPACITY = 1024;
+
+    /** The <strong>directory</strong> with the model files. */
+    private final Path directory;
+    /** The maximum amount of bytes the loaded models take together. */
+    private final long memoryBudget;
+    /** The models that are loaded or being loaded, by name. */
+    private final ConcurrentHashMap<String, Entry> entries = new ConcurrentHashMap<>();
+    /** The statistics of the evicted models, by name, the one evicted longest ago first. Guarded by itself. */
+    private final LinkedHashMap<String, ModelStats> evictedStats = new LinkedHashMap<>();
+    /** The amount of models loaded so far. */
+    private final LongAdder loads = new LongAdder();
+    /** The amount of models evicted so far. */
+    private final LongAdder evictions = new LongAdder();
+    /** The amount of bytes the loaded models take together. */
+    private final AtomicLong memoryUsed = new AtomicLong();
+    /** The lock that makes evictions run one at a time. Requests never take it. */
+    private final ReentrantLock evictionLock = new ReentrantLock();
+
+    /**
+     * Initializes an empty registry; no model is loaded until it is requested.
+     *
+     * @param directory     The <strong>directory</strong> with the model files.
+     * @param memoryBudget  The maximum amount of bytes the loaded models take together. Must be positive.
+     */
+    public ModelRegistry(Path directory, long memoryBudget) {
+        if (memoryBudget <= 0)
+            throw new IllegalArgumentException("Memory budget must be positive instead of " + memoryBudget);
+
+        this.directory = directory;
+        this.memoryBudget = memoryBudget;
+    }
+
+    /**
+     * Returns the model with the given name, loading it if it is not loaded.
+     *
+     * @param name  The <strong>name</strong> of the model.
+     * @return the loaded model.
+     * @throws IOException if the model is not loaded and its file cannot be read, for example
+     * a NoSuchFileException if there is no such model.
+     */
+    public TrainedModel get(String name) throws IOException {
+        if (!NAME.matcher(name).matches())
+            throw new IllegalArgumentException("Invalid model name: " + name);
+
+        while (true) {
+            Entry entry = entries.computeIfAbsent(name, key -> new Entry(takeEvictedStats(key)));
+            entry.stats.recordRequest();
+
+            TrainedModel model = entry.model;
+            if (model == null)
+                model = load(entry);
+            // Null if the entry was evicted before the load; the next pass loads a new one.
+            if (model != null)
+                return model;
+        }
+    }
+
+    /**
+     * Recalls the input pattern with the model of the given name.
+     *
+     * @param name              The <strong>name</strong> of the model.
+     * @param inputPattern      The pattern to start the recall from.
+     * @param maxIterations     The maximum amount of iterations.
+     * @return the result of the recall.
+     * @throws IOException if the model is not loaded and its file cannot be read.
+     */
+    public RecallResult recall(String name, PackedPattern inputPattern, int maxIterations) throws IOException {
+        return get(name).recall(inputPattern, maxIterations);
+    }
+
+    /**
+     * Predicts the stored pattern for the input pattern with the model of the given name.
+     *
+     * @param name              The <strong>name</strong> of the model.
+     * @param inputPattern      The pattern to start the recall from.
+     * @param maxIterations     The maximum amount of iterations.
+     * @return the stored pattern, or null if the input was not recognized.
+     * @throws IOException if the model is not loaded and its file cannot be read.
+     */
+    public PackedPattern predict(String name, PackedPattern inputPattern, int maxIterations) throws IOException {
+        return get(name).predict(inputPattern, maxIterations);
+    }
+
+    /**
+     * Evicts the model with the given name if it is loaded.
+     *
+     * @param name  The <strong>name</strong> of the model.
+     * @return true if the model was loaded.
+     */
+    public boolean evict(String name) {
+        Entry entry = entries.get(name);
+        return entry != null && unload(entry);
+    }
+
+    /**
+     * Returns the statistics of the model with the given name.
+     *
+     * @param name  The <strong>name</strong> of the model.
+     * @return the statistics, or null if the model is not loaded or being loaded and its
+     * statistics were not kept after its eviction.
+     */
+    public ModelStats getStats(String name) {
+        Entry entry = entries.get(name);
+        if (entry != null)
+            return entry.stats;
+
+        synchronized (evictedStats) {
+            return evictedStats.get(name);
+        }
+    }
+
+    /**
+     * Returns the statistics of all models that are loaded or being loaded, and the kept
+     * statistics of the evicted models.
+     * @return the statistics of the models.
+     */
+    public Collection<ModelStats> getStats() {
+        // An eviction keeps the statistics before it removes the entry, so a model may be seen twice.
+        Map<String, ModelStats> stats = new LinkedHashMap<>();
+        for (Entry entry : entries.values())
+            stats.put(entry.stats.getName(), entry.stats);
+        synchronized (evictedStats) {
+            for (ModelStats evicted : evictedStats.values())
+                stats.putIfAbsent(evicted.getName(), evicted);
+        }
+        return new ArrayList<>(stats.values());
+    }
+
+    /**
+     * Returns the amount of models that are loaded.
+     * @return the amount of loaded models.
+     */
+    public int getLoadedNum() {
+        int loaded = 0;
+        for (Entry entry : entries.values())
+            if (entry.model != null)
+                loaded++;
+
+        return loaded;
+    }
+
+    /**
+     * Returns the amount of models loaded so far.
+     * @return the amount of loads of all models.
+     */
+    public long getLoads() {
+        return loads.sum();
+    }
+
+    /**
+     * Returns the amount of models evicted so far.
+     * @return the amount of evictions of all models.
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Returns the amount of bytes the loaded models take together.
+     * @return the amount of bytes the loaded models take.
+     */
+    public long getMemoryUsed() {
+        return memoryUsed.get();
+    }
+
+    /**
+     * Returns the maximum amount of bytes the loaded models take together.
+     * @return the memory budget.
+     */
+    public long getMemoryBudget() {
+        return memoryBudget;
+    }
+
+    /**
+     * Exports the statistics of all models and the memory of the registry in the Prometheus text format.
+     * @return the statistics, one sample per line.
+     */
+    public String export() {
+        Collection<ModelStats> stats = getStats();
+        StringBuilder builder = new StringBuilder();
+        builder.append("# TYPE hopfield_registry_memory_bytes gauge\n");
+        builder.append("hopfield_registry_memory_bytes ").append(getMemoryUsed()).append('\n');
+        builder.append("# TYPE hopfield_registry_memory_budget_bytes gauge\n");
+        builder.append("hopfield_registry_memory_budget_bytes ").append(memoryBudget).append('\n');
+        builder.append("# TYPE hopfield_registry_loads_total counter\n");
+        builder.append("hopfield_registry_loads_total ").append(getLoads()).append('\n');
+        builder.append("# TYPE hopfield_registry_evictions_total counter\n");
+        builder.append("hopfield_registry_evictions_total ").append(getEvictions()).append('\n');
+
+        builder.append("# TYPE hopfield_model_requests_total counter\n");
+        for (ModelStats model : stats)
+            sample(builder, "hopfield_model_requests_total", model, model.getRequests());
+        builder.append("# TYPE hopfield_model_loads_total counter\n");
+        for (ModelStats model : stats)
+            sample(builder, "hopfield_model_loads_total", model, model.getLoads());
+        builder.append("# TYPE hopfield_model_evictions_total counter\n");
+        for (ModelStats model : stats)
+            sample(builder, "hopfield_model_evictions_total", model, model.getEvictions());
+        builder.append("# TYPE hopfield_model_bytes gauge\n");
+        for (ModelStats model : stats)
+            sample(builder, "hopfield_model_bytes", model, model.getBytes());
+
+        builder.append("# TYPE hopfield_model_recalls_total counter\n");
+        for (ModelStats model : stats) {
+            for (RecallStatus status : RecallStatus.values())
+                builder.append("hopfield_model_recalls_total{model=\"").append(model.getName())
+                        .append("\",status=\"").append(status.name().toLowerCase(Locale.ROOT)).append("\"} ")
+                        .append(model.getRecallMetrics().getRecalls(status)).append('\n');
+        }
+        return builder.toString();
+    }
+
+    /**
+     * Appends one sample of a model to the export.
+     *
+     * @param builder   The export.
+     * @param metric    The name of the metric.
+     * @param model     The statistics of the model.
+     * @param value     The value of the sample.
+     */
+    private static void sample(StringBuilder builder, String metric, ModelStats model, long value) {
+        builder.append(metric).append("{model=\"").append(model.getName()).append("\"} ").append(value).append('\n');
+    }
+
+    /**
+     * Returns the path of the file of the model with the given name.
+     *
+     * @param name  The <strong>name</strong> of the model.
+     * @return the path of the model file.
+     */
+    private Path path(String name) {
+        return directory.resolve(name + EXTENSION);
+    }
+
+    /**
+     * Loads the model of the entry unless another thread has already done it, and evicts
+     * other models if the budget is exceeded. The existence of the file is checked by the
+     * load itself, under the lock of the entry; if it cannot be read, the entry is removed.
+     *
+     * @param entry The <strong>entry</strong> of the model.
+     * @return the loaded model, or null if the entry was evicted and removed before the load.
+     * @throws IOException if the model file cannot be read.
+     */
+    private TrainedModel load(Entry entry) throws IOException {
+        TrainedModel model;
+        synchronized (entry) {
+            if (entry.removed)
+                return null;
+            model = entry.model;
+            if (model != null)
+                return model;
+
+            Path path = path(entry.stats.getName());
+            long start = System.nanoTime();
+            long bytes;
+            try {
+                bytes = Files.size(path);
+                model = ModelFile.load(path).withRecallListener(entry.stats.getRecallMetrics());
+            } catch (IOException e) {
+                remove(entry);
+                throw e;
+            }
+
+            loads.increment();
+            entry.stats.recordLoad(bytes, System.nanoTime() - start);
+            entry.bytes = bytes;
+            entry.model = model;
+            memoryUsed.addAndGet(bytes);
+        }
+
+        if (memoryUsed.get() > memoryBudget)
+            evictLeastRecent(entry);
+        return model;
+    }
+
+    /**
+     * Evicts the loaded models that were requested least recently until the rest fits into the budget.
+     *
+     * @param keep  The entry that must stay loaded.
+     */
+    private void evictLeastRecent(Entry keep) {
+        evictionLock.lock();
+        try {
+            while (memoryUsed.get() > memoryBudget) {
+                Entry oldest = null;
+                for (Entry entry : entries.values()) {
+                    if (entry == keep || entry.model == null)
+                        continue;
+                    if (oldest == null || entry.stats.getLastAccessNanos() - oldest.stats.getLastAccessNanos() < 0)
+                        oldest = entry;
+                }
+
+                if (oldest == null)
+                    break;
+                unload(oldest);
+            }
+        } finally {
+            evictionLock.unlock();
+        }
+    }
+
+    /**
+     * Drops the model of the entry if it is loaded and removes the entry from the registry.
+     * Its statistics are kept for the next load of the model.
+     *
+     * @param entry The <strong>entry</strong> of the model.
+     * @return true if the model was loaded.
+     */
+    private boolean unload(Entry entry) {
+        synchronized (entry) {
+            if (entry.model == null)
+                return false;
+
+            entry.model = null;
+            memoryUsed.addAndGet(-entry.bytes);
+            entry.bytes = 0;
+            entry.stats.recordEviction();
+            evictions.increment();
+            keepEvictedStats(entry.stats);
+            remove(entry);
+            return true;
+        }
+    }
+
+    /**
+     * Removes the entry from the registry, so the next request of its name creates a new one.
+     * Must be called under the lock of the entry.
+     *
+     * @param entry The <strong>entry</strong> of the model.
+     */
+    private void remove(Entry entry) {
+        entry.removed = true;
+        entries.remove(entry.stats.getName(), entry);
+    }
+
+    /**
+     * Keeps the statistics of an evicted model, dropping the statistics evicted longest ago
+     * if there are more than EVICTED_STATS_CAPACITY of them.
+     *
+     * @param stats The <strong>statistics</strong> of the evicted model.
+     */
+    private void keepEvictedStats(ModelStats stats) {
+        synchronized (evictedStats) {
+            evictedStats.put(stats.getName(), stats);
+            Iterator<ModelStats> oldest = evictedStats.values().iterator();
+            while (evictedStats.size() > EVICTED_STATS_CAPACITY) {
+                oldest.next();
+                oldest.remove();
+            }
+        }
+    }
+
+    /**
+     * Takes the kept statistics of an evicted model for its new entry, or creates new ones.
+     *
+     * @param name  The <strong>name</strong> of the model.
+     * @return the statistics of the model.
+     */
+    private ModelStats takeEvictedStats(String name) {
+        synchronized (evictedStats) {
+            ModelStats stats = evictedStats.remove(name);
+            return (stats != null) ? stats : new ModelStats(name);
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "ModelRegistry{directory=" + directory + ", models=" + entries.size() + ", loaded=" + getLoadedNum()
+                + ", memoryUsed=" + getMemoryUsed() + ", memoryBudget=" + memoryBudget + "}";
+    }
+
+    /**
+     * A model of the registry: its statistics and, while it is loaded, the model itself.
+     * The model, its size and the removal change only under the lock of the entry.
+     */
+    private static final class Entry {
+        /** The statistics of the model. */
+        final ModelStats stats;
+        /** The loaded model, or null if it is not loaded. */
+        volatile TrainedModel model;
+        /** The amount of bytes the loaded model takes, or 0 if it is not loaded. */
+        long bytes;
+        /** True once the entry is removed from the registry; it is never loaded again. */
+        boolean removed;
+
+        Entry(ModelStats stats) {
+            this.stats = stats;
+        }
+    }
+}
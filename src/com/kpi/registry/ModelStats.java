@@ -0,0 +1,140 @@
+package com.kpi.registry;
+
+import com.kpi.metrics.RecallMetrics;
+
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * The usage statistics of one model of a ModelRegistry: how often it was requested, how
+ * long its loads took, when it was last used, how its recalls ended and how often it was
+ * evicted. The statistics cover all loads of the model: the registry keeps them after an
+ * eviction and hands them to the next load, unless it had to drop them to keep the statistics
+ * of at most ModelRegistry.EVICTED_STATS_CAPACITY evicted models. All counters are lock-free
+ * and can be read at any time.
+ */
+public final class ModelStats {
+    /** The <strong>name</strong> of the model. */
+    private final String name;
+    /** The amount of times the model was requested. */
+    private final LongAdder requests = new LongAdder();
+    /** The amount of times the model was loaded from its file. */
+    private final LongAdder loads = new LongAdder();
+    /** The amount of times the model was evicted. */
+    private final LongAdder evictions = new LongAdder();
+    /** The time spent loading the model, in nanoseconds. */
+    private final LongAdder loadNanos = new LongAdder();
+    /** The metrics of the recalls of the model, reported by every loaded instance of it. */
+    private final RecallMetrics recallMetrics = new RecallMetrics();
+    /** The value of System.nanoTime() at the last request. */
+    private volatile long lastAccessNanos;
+    /** The amount of bytes the model takes while it is loaded, or 0 if it is not loaded. */
+    private volatile long bytes;
+
+    /**
+     * Initializes the statistics of a model that was never requested.
+     *
+     * @param name  The <strong>name</strong> of the model.
+     */
+    ModelStats(String name) {
+        this.name = name;
+        this.lastAccessNanos = System.nanoTime();
+    }
+
+    /**
+     * Counts a request of the model.
+     */
+    void recordRequest() {
+        requests.increment();
+        lastAccessNanos = System.nanoTime();
+    }
+
+    /**
+     * Counts a load of the model.
+     *
+     * @param bytes The amount of <strong>bytes</strong> the loaded model takes.
+     * @param nanos The time the load took, in nanoseconds.
+     */
+    void recordLoad(long bytes, long nanos) {
+        loads.increment();
+        loadNanos.add(nanos);
+        this.bytes = bytes;
+    }
+
+    /**
+     * Counts an eviction of the model.
+     */
+    void recordEviction() {
+        evictions.increment();
+        bytes = 0;
+    }
+
+    /**
+     * Returns the name of the model.
+     * @return the name of the model.
+     */
+    public String getName() {
+        return name;
+    }
+
+    /**
+     * Returns the amount of times the model was requested.
+     * @return the amount of times the model was requested.
+     */
+    public long getRequests() {
+        return requests.sum();
+    }
+
+    /**
+     * Returns the amount of times the model was loaded from its file.
+     * @return the amount of times the model was loaded.
+     */
+    public long getLoads() {
+        return loads.sum();
+    }
+
+    /**
+     * Returns the amount of times the model was evicted.
+     * @return the amount of times the model was evicted.
+     */
+    public long getEvictions() {
+        return evictions.sum();
+    }
+
+    /**
+     * Returns the time spent loading the model.
+     * @return the time spent loading the model, in nanoseconds.
+     */
+    public long getLoadNanos() {
+        return loadNanos.sum();
+    }
+
+    /**
+     * Returns the value of System.nanoTime() at the last request of the model.
+     * @return the time of the last request.
+     */
+    public long getLastAccessNanos() {
+        return lastAccessNanos;
+    }
+
+    /**
+     * Returns the amount of bytes the model takes.
+     * @return the amount of bytes the model takes while it is loaded, or 0 if it is not loaded.
+     */
+    public long getBytes() {
+        return bytes;
+    }
+
+    /**
+     * Returns the metrics of the recalls of the model.
+     * @return the metrics of the recalls of the model.
+     */
+    public RecallMetrics getRecallMetrics() {
+        return recallMetrics;
+    }
+
+    @Override
+    public String toString() {
+        return "ModelStats{name=" + name + ", requests=" + getRequests() + ", loads=" + getLoads()
+                + ", evictions=" + getEvictions() + ", bytes=" + bytes + ", recalls=" + recallMetrics.getRecalls() + "}";
+    }
+}
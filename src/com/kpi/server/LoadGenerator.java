@@ -0,0 +1,303 @@
+package com.kpi.server;
+
+import com.kpi.ModelFile;
+import com.kpi.PackedPattern;
+import com.kpi.TrainedModel;
+import com.kpi.metrics.Histogram;
+
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardSocketOptions;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Locale;
+import java.util.Random;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A load generator for the RecognitionServer: measures its throughput and latency.
+ * <p>
+ * Every connection runs in its own thread and keeps a window of requests in flight: it
+ * sends the window at once and then a new request for every response it reads, until it
+ * has sent its share of requests. The inputs are the stored patterns of a model file with
+ * the given share of states flipped, or random patterns without a model.
+ * <p>
+ * Usage: {@code LoadGenerator [--host 127.0.0.1] [--port 7070 | --unix path] [--model model.hnn]
+ * [--connections 4] [--window 16] [--requests 10000] [--noise 0.1]}
+ */
+public class LoadGenerator {
+    /** The round-trip times of the requests, in microseconds. */
+    private final Histogram latencies = new Histogram();
+    /** The amount of responses with a recognized pattern. */
+    private final LongAdder recognized = new LongAdder();
+    /** The amount of responses telling that the server failed to recognize the input. */
+    private final LongAdder errors = new LongAdder();
+    /** The address of the server. */
+    private final SocketAddress address;
+    /** The stored patterns the inputs are made from, or null for random inputs. */
+    private final List<PackedPattern> patterns;
+    /** The amount of requests each connection keeps in flight. */
+    private final int window;
+    /** The amount of requests each connection sends. */
+    private final int requestsNum;
+    /** The share of the states of an input that are flipped. */
+    private final double noise;
+
+    /**
+     * Initializes a load generator.
+     *
+     * @param address       The address of the server.
+     * @param patterns      The stored patterns the inputs are made from, or null for random inputs.
+     * @param window        The amount of requests each connection keeps in flight.
+     * @param requestsNum   The amount of requests each connection sends.
+     * @param noise         The share of the states of an input that are flipped.
+     */
+    public LoadGenerator(SocketAddress address, List<PackedPattern> patterns, int window, int requestsNum, double noise) {
+        if (window <= 0 || requestsNum <= 0)
+            throw new IllegalArgumentException("Window and amount of requests must be positive.");
+
+        this.address = address;
+        this.patterns = patterns;
+        this.window = window;
+        this.requestsNum = requestsNum;
+        this.noise = noise;
+    }
+
+    /**
+     * Returns the histogram of the round-trip times of the requests, in microseconds.
+     * @return the histogram of the latencies.
+     */
+    public Histogram getLatencies() {
+        return latencies;
+    }
+
+    /**
+     * Returns the amount of responses with a recognized pattern.
+     * @return the amount of recognized inputs.
+     */
+    public long getRecognized() {
+        return recognized.sum();
+    }
+
+    /**
+     * Returns the amount of responses telling that the server failed to recognize the input.
+     * @return the amount of failed requests.
+     */
+    public long getErrors() {
+        return errors.sum();
+    }
+
+    /**
+     * Runs the given amount of connections at once and waits for all of them.
+     *
+     * @param connectionsNum    The amount of connections.
+     * @throws IOException if a connection fails.
+     * @throws InterruptedException if the calling thread is interrupted.
+     */
+    public void run(int connectionsNum) throws IOException, InterruptedException {
+        List<Thread> threads = new ArrayList<>();
+        IOException[] error = new IOException[1];
+        for (int c = 0; c < connectionsNum; c++) {
+            long seed = c;
+            threads.add(new Thread(() -> {
+                try {
+                    runConnection(new Random(seed));
+                } catch (IOException e) {
+                    synchronized (error) {
+                        error[0] = e;
+                    }
+                }
+            }, "load-connection-" + c));
+        }
+
+        for (Thread thread : threads)
+            thread.start();
+        for (Thread thread : threads)
+            thread.join();
+
+        if (error[0] != null)
+            throw error[0];
+    }
+
+    /**
+     * Opens one connection and runs its requests.
+     *
+     * @param random    The source of the inputs of the connection.
+     * @throws IOException if the connection fails.
+     */
+    private void runConnection(Random random) throws IOException {
+        try (SocketChannel channel = SocketChannel.open(address)) {
+            if (address instanceof InetSocketAddress)
+                channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+
+            ByteBuffer hello = ByteBuffer.allocate(RecognitionProtocol.HELLO_SIZE);
+            readFully(channel, hello);
+            if (hello.getInt() != RecognitionProtocol.MAGIC)
+                throw new IOException("Not a recognition server: " + address);
+            int size = hello.getInt() * hello.getInt();
+            if (patterns != null && !patterns.isEmpty() && patterns.get(0).size() != size)
+                throw new IOException("The server recognizes patterns of " + size + " states instead of " + patterns.get(0).size());
+
+            ByteBuffer request = ByteBuffer.allocate(Integer.BYTES + RecognitionProtocol.requestLength(size));
+            ByteBuffer response = ByteBuffer.allocate(Integer.BYTES + RecognitionProtocol.responseLength(size));
+            long[] sentNanos = new long[requestsNum];
+
+            int sent = 0;
+            for (; sent < Math.min(window, requestsNum); sent++)
+                send(channel, request, sent, input(random, size), sentNanos);
+
+            for (int received = 0; received < requestsNum; received++) {
+                response.clear();
+                readFully(channel, response);
+                response.getInt();
+                int id = (int) response.getLong();
+                byte status = response.get();
+                if (status == RecognitionProtocol.RECOGNIZED)
+                    recognized.increment();
+                else if (status == RecognitionProtocol.ERROR)
+                    errors.increment();
+                latencies.record((int) Math.min(Integer.MAX_VALUE, (System.nanoTime() - sentNanos[id]) / 1000));
+
+                if (sent < requestsNum) {
+                    send(channel, request, sent, input(random, size), sentNanos);
+                    sent++;
+                }
+            }
+        }
+    }
+
+    /**
+     * Makes an input: a random stored pattern with some states flipped, or a random pattern.
+     *
+     * @param random    The source of the input.
+     * @param size      The amount of states in the input.
+     * @return the input pattern.
+     */
+    private PackedPattern input(Random random, int size) {
+        if (patterns == null || patterns.isEmpty()) {
+            PackedPattern input = new PackedPattern(size);
+            for (int i = 0; i < size; i++)
+                input.set(i, random.nextBoolean());
+            return input;
+        }
+
+        PackedPattern input = new PackedPattern(patterns.get(random.nextInt(patterns.size())));
+        for (int i = 0; i < size; i++)
+            if (random.nextDouble() < noise)
+                input.set(i, !input.get(i));
+        return input;
+    }
+
+    /**
+     * Sends one request.
+     *
+     * @param channel   The channel of the connection.
+     * @param request   The buffer of the request frame.
+     * @param id        The <strong>id</strong> of the request.
+     * @param input     The input pattern.
+     * @param sentNanos The times the requests were sent, by id.
+     * @throws IOException if the request cannot be written.
+     */
+    private static void send(SocketChannel channel, ByteBuffer request, int id, PackedPattern input, long[] sentNanos)
+            throws IOException {
+        request.clear();
+        RecognitionProtocol.putRequest(request, id, input);
+        request.flip();
+
+        sentNanos[id] = System.nanoTime();
+        while (request.hasRemaining())
+            channel.write(request);
+    }
+
+    /**
+     * Reads until the buffer is full and flips it.
+     *
+     * @param channel   The channel of the connection.
+     * @param buffer    The buffer to be filled.
+     * @throws IOException if the connection is closed or cannot be read.
+     */
+    private static void readFully(SocketChannel channel, ByteBuffer buffer) throws IOException {
+        while (buffer.hasRemaining())
+            if (channel.read(buffer) < 0)
+                throw new EOFException("The server closed the connection.");
+        buffer.flip();
+    }
+
+    /**
+     * Parses the options, runs the load and prints the throughput and the latencies.
+     *
+     * @param args  The options, see the class description.
+     * @throws IOException if the model cannot be loaded or a connection fails.
+     * @throws InterruptedException if the main thread is interrupted.
+     */
+    public static void main(String[] args) throws IOException, InterruptedException {
+        String host = "127.0.0.1";
+        int port = 7070;
+        Path unixPath = null;
+        Path modelPath = null;
+        int connectionsNum = 4;
+        int window = 16;
+        int requestsNum = 10000;
+        double noise = 0.1;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--host":
+                    host = args[++i];
+                    break;
+                case "--port":
+                    port = Integer.parseInt(args[++i]);
+                    break;
+                case "--unix":
+                    unixPath = Paths.get(args[++i]);
+                    break;
+                case "--model":
+                    modelPath = Paths.get(args[++i]);
+                    break;
+                case "--connections":
+                    connectionsNum = Integer.parseInt(args[++i]);
+                    break;
+                case "--window":
+                    window = Integer.parseInt(args[++i]);
+                    break;
+                case "--requests":
+                    requestsNum = Integer.parseInt(args[++i]);
+                    break;
+                case "--noise":
+                    noise = Double.parseDouble(args[++i]);
+                    break;
+                default:
+                    System.err.println("Usage: LoadGenerator [--host 127.0.0.1] [--port 7070 | --unix path] [--model model.hnn]"
+                            + " [--connections 4] [--window 16] [--requests 10000] [--noise 0.1]");
+                    System.exit(2);
+            }
+        }
+
+        List<PackedPattern> patterns = null;
+        if (modelPath != null) {
+            TrainedModel model = ModelFile.load(modelPath);
+            patterns = new ArrayList<>(model.getPatterns());
+        }
+
+        SocketAddress address = (unixPath != null) ? UnixDomainSocketAddress.of(unixPath) : new InetSocketAddress(host, port);
+        LoadGenerator generator = new LoadGenerator(address, patterns, window, requestsNum, noise);
+
+        long start = System.nanoTime();
+        generator.run(connectionsNum);
+        double seconds = (System.nanoTime() - start) / 1e9;
+
+        long total = (long) connectionsNum * requestsNum;
+        Histogram latencies = generator.getLatencies();
+        System.out.printf(Locale.ROOT, "requests=%d seconds=%.3f throughput=%.0f/s recognized=%.3f errors=%d%n",
+                total, seconds, total / seconds, (double) generator.getRecognized() / total, generator.getErrors());
+        System.out.printf(Locale.ROOT, "latency_us mean=%.1f p50<=%d p90<=%d p99<=%d%n",
+                latencies.mean(), latencies.quantile(0.5), latencies.quantile(0.9), latencies.quantile(0.99));
+    }
+}
@@ -0,0 +1,133 @@
+package com.kpi.server;
+
+import com.kpi.PackedPattern;
+
+import java.nio.ByteBuffer;
+
+/**
+ * The binary protocol of the RecognitionServer. All numbers are big-endian.
+ * <ul>
+ *     <li>When a client connects, the server sends a 12-byte hello: the magic number,
+ *     the amount of rows and the amount of columns of the letters of its model.</li>
+ *     <li>A request is the length of the rest of the frame (int), an id chosen by the
+ *     client (long) and the packed input pattern (the longs of PackedPattern).</li>
+ *     <li>A response is the length of the rest of the frame (int), the id of the request
+ *     (long), the status (byte, 1 if the input was recognized, 0 if it was not and 2 if the
+ *     server failed to recognize it) and the packed recognized pattern (longs, all zero if
+ *     the input was not recognized).</li>
+ * </ul>
+ * Requests can be pipelined; the responses of one connection may come in any order and
+ * are matched to the requests by their ids. A frame of an unexpected length closes the
+ * connection.
+ */
+public final class RecognitionProtocol {
+    /** The <strong>magic number</strong> at the beginning of the hello, "HNS1" in ASCII. */
+    public static final int MAGIC = 0x484E5331;
+    /** The size of the hello in bytes. */
+    public static final int HELLO_SIZE = 3 * Integer.BYTES;
+    /** The status of an input that was not recognized. */
+    public static final byte NOT_RECOGNIZED = 0;
+    /** The status of a recognized input. */
+    public static final byte RECOGNIZED = 1;
+    /** The status of an input the server failed to recognize; the request may be sent again. */
+    public static final byte ERROR = 2;
+
+    private RecognitionProtocol() {
+    }
+
+    /**
+     * Returns the length of a request frame after its length field.
+     *
+     * @param size  The amount of states in the patterns.
+     * @return the length of the request frame.
+     */
+    public static int requestLength(int size) {
+        return Long.BYTES + PackedPattern.wordsNum(size) * Long.BYTES;
+    }
+
+    /**
+     * Returns the length of a response frame after its length field.
+     *
+     * @param size  The amount of states in the patterns.
+     * @return the length of the response frame.
+     */
+    public static int responseLength(int size) {
+        return Long.BYTES + 1 + PackedPattern.wordsNum(size) * Long.BYTES;
+    }
+
+    /**
+     * Writes the hello of a server.
+     *
+     * @param buffer    The buffer the hello is written to.
+     * @param rows      The amount of <strong>rows</strong> in the letters of the model.
+     * @param cols      The amount of <strong>columns</strong> in the letters of the model.
+     */
+    public static void putHello(ByteBuffer buffer, int rows, int cols) {
+        buffer.putInt(MAGIC).putInt(rows).putInt(cols);
+    }
+
+    /**
+     * Writes a request frame.
+     *
+     * @param buffer    The buffer the frame is written to.
+     * @param id        The <strong>id</strong> of the request.
+     * @param pattern   The input <strong>pattern</strong>.
+     */
+    public static void putRequest(ByteBuffer buffer, long id, PackedPattern pattern) {
+        buffer.putInt(requestLength(pattern.size())).putLong(id);
+        putWords(buffer, pattern, pattern.size());
+    }
+
+    /**
+     * Writes a response frame.
+     *
+     * @param buffer    The buffer the frame is written to.
+     * @param id        The <strong>id</strong> of the request.
+     * @param pattern   The recognized <strong>pattern</strong>, or null if the input was not recognized.
+     * @param size      The amount of states in the patterns.
+     */
+    public static void putResponse(ByteBuffer buffer, long id, PackedPattern pattern, int size) {
+        buffer.putInt(responseLength(size)).putLong(id).put(pattern != null ? RECOGNIZED : NOT_RECOGNIZED);
+        putWords(buffer, pattern, size);
+    }
+
+    /**
+     * Writes a response frame telling that the server failed to recognize the input.
+     *
+     * @param buffer    The buffer the frame is written to.
+     * @param id        The <strong>id</strong> of the request.
+     * @param size      The amount of states in the patterns.
+     */
+    public static void putError(ByteBuffer buffer, long id, int size) {
+        buffer.putInt(responseLength(size)).putLong(id).put(ERROR);
+        putWords(buffer, null, size);
+    }
+
+    /**
+     * Reads the packed pattern that follows the id of a frame.
+     *
+     * @param buffer    The buffer positioned at the first word.
+     * @param size      The amount of states in the pattern.
+     * @return the pattern.
+     */
+    public static PackedPattern getPattern(ByteBuffer buffer, int size) {
+        long[] words = new long[PackedPattern.wordsNum(size)];
+        for (int w = 0; w < words.length; w++)
+            words[w] = buffer.getLong();
+
+        return new PackedPattern(size, words);
+    }
+
+    /**
+     * Writes the words of a pattern, or zero words if there is no pattern.
+     *
+     * @param buffer    The buffer the words are written to.
+     * @param pattern   The pattern, or null.
+     * @param size      The amount of states in the pattern.
+     */
+    private static void putWords(ByteBuffer buffer, PackedPattern pattern, int size) {
+        int wordsNum = PackedPattern.wordsNum(size);
+        for (int w = 0; w < wordsNum; w++)
+            buffer.putLong(pattern != null ? pattern.getWord(w) : 0L);
+    }
+}
@@ -0,0 +1,698 @@
+package com.kpi.server;
+
+import com.kpi.Letter;
+import com.kpi.ModelFile;
+import com.kpi.PackedPattern;
+import com.kpi.TrainedModel;
+import com.kpi.metrics.Histogram;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.net.InetSocketAddress;
+import java.net.SocketAddress;
+import java.net.StandardProtocolFamily;
+import java.net.StandardSocketOptions;
+import java.net.UnixDomainSocketAddress;
+import java.nio.ByteBuffer;
+import java.nio.channels.ClosedSelectorException;
+import java.nio.channels.SelectionKey;
+import java.nio.channels.Selector;
+import java.nio.channels.ServerSocketChannel;
+import java.nio.channels.SocketChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentLinkedQueue;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.concurrent.atomic.LongAdder;
+
+/**
+ * A RecognitionServer object.
+ * Serves the recall of one trained model to other processes on the same host over TCP or
+ * a Unix domain socket, in the frames of RecognitionProtocol.
+ * <p>
+ * One selector thread does all the socket work: it accepts connections, cuts the requests
+ * out of the received bytes and writes the responses. The requests go through one bounded
+ * queue to the worker threads, which gather them into micro-batches of up to the batch size,
+ * waiting at most the batch delay after the arrival of the first one, and recall every
+ * micro-batch with one batched pass of the model.
+ * <p>
+ * Nothing grows without bound. When the queue is full, the selector stops reading from the
+ * connection whose request does not fit until the workers make room, so the clients are
+ * slowed down by TCP flow control instead of being answered with errors; a connection whose
+ * unread responses exceed a limit is not read from either until its client catches up.
+ * <p>
+ * A micro-batch whose recall fails is answered with the error status for every request in it,
+ * and the worker goes on with the next micro-batch; only close() stops the workers.
+ * <p>
+ * If the selector fails, the server cannot serve anybody any more: the selector thread
+ * reports the error, stops the workers and closes all connections, and close() throws the error.
+ * <p>
+ * Usage: {@code RecognitionServer --model model.hnn [--host 127.0.0.1] [--port 7070 | --unix path]
+ * [--batch 64] [--delay-us 200] [--queue 4096] [--workers N] [--max-iterations 100]}
+ */
+public class RecognitionServer implements Closeable {
+    /** The size of the receive buffer of a connection when the frames are small. */
+    private static final int READ_BUFFER_SIZE = 1 << 16;
+    /** The amount of bytes of responses a connection may have waiting before it is not read from. */
+    private static final int MAX_PENDING_OUTPUT = 1 << 20;
+
+    /** The trained <strong>model</strong> shared by all workers. */
+    private final TrainedModel model;
+    /** The amount of states in the patterns of the model. */
+    private final int size;
+    /** The length of a request frame after its length field. */
+    private final int requestLength;
+    /** The maximum amount of requests in one micro-batch. */
+    private final int maxBatchSize;
+    /** The longest time a request waits for a micro-batch to fill, in nanoseconds. */
+    private final long maxDelayNanos;
+    /** The maximum amount of iterations of one recall. */
+    private final int maxIterations;
+    /** The requests received and not yet taken by a worker. */
+    private final BlockingQueue<Request> requests;
+    /** The channel that accepts the connections. */
+    private final ServerSocketChannel serverChannel;
+    /** The address the server channel is bound to, kept to remove the file of a Unix domain socket. */
+    private final SocketAddress localAddress;
+    /** The selector of the server channel and of all connections. */
+    private final Selector selector;
+    /** The connections that have new responses to write, handed from the workers to the selector thread. */
+    private final ConcurrentLinkedQueue<Connection> changed = new ConcurrentLinkedQueue<>();
+    /** The open connections, kept apart from the selector so they can be closed when it fails. */
+    private final Set<Connection> connections = ConcurrentHashMap.newKeySet();
+    /** The connections not read from because their request did not fit into the queue. Selector thread only. */
+    private final LinkedHashSet<Connection> paused = new LinkedHashSet<>();
+    /** The amount of paused connections, read by the workers. */
+    private final AtomicInteger pausedNum = new AtomicInteger();
+    /** The selector thread and the worker threads. */
+    private final List<Thread> threads = new ArrayList<>();
+    /** The amount of answered requests. */
+    private final LongAdder requestsNum = new LongAdder();
+    /** The amount of recalled micro-batches. */
+    private final LongAdder batchesNum = new LongAdder();
+    /** The amount of requests per micro-batch. */
+    private final Histogram batchSizes = new Histogram();
+    /** The time from the arrival of a request until its response is queued for writing, in microseconds. */
+    private final Histogram latencies = new Histogram();
+    /** False once the server is closed or its selector failed. */
+    private volatile boolean running = true;
+    /** The error that stopped the selector thread, or null. */
+    private volatile IOException failure;
+    /** True once the channels and the selector are closed. */
+    private boolean released;
+
+    /**
+     * Opens the server on the address; it does not accept connections until it is started.
+     *
+     * @param model         The trained <strong>model</strong> to serve.
+     * @param address       An InetSocketAddress or a UnixDomainSocketAddress to listen on.
+     * @param maxBatchSize  The maximum amount of requests in one micro-batch.
+     * @param maxDelayNanos The longest time a request waits for a micro-batch to fill, in nanoseconds.
+     * @param queueCapacity The maximum amount of requests waiting for a worker.
+     * @param maxIterations The maximum amount of iterations of one recall.
+     * @throws IOException if the address cannot be bound.
+     */
+    public RecognitionServer(TrainedModel model, SocketAddress address, int maxBatchSize, long maxDelayNanos,
+                             int queueCapacity, int maxIterations) throws IOException {
+        if (maxBatchSize <= 0 || queueCapacity <= 0 || maxIterations <= 0 || maxDelayNanos < 0)
+            throw new IllegalArgumentException("Batch size, queue capacity and iterations must be positive and delay must not be negative.");
+
+        this.model = model;
+        this.size = model.size();
+        this.requestLength = RecognitionProtocol.requestLength(size);
+        this.maxBatchSize = maxBatchSize;
+        this.maxDelayNanos = maxDelayNanos;
+        this.maxIterations = maxIterations;
+        this.requests = new ArrayBlockingQueue<>(queueCapacity);
+
+        serverChannel = (address instanceof UnixDomainSocketAddress)
+                ? ServerSocketChannel.open(StandardProtocolFamily.UNIX)
+                : ServerSocketChannel.open();
+        try {
+            serverChannel.bind(address);
+            localAddress = serverChannel.getLocalAddress();
+            serverChannel.configureBlocking(false);
+            selector = Selector.open();
+            serverChannel.register(selector, SelectionKey.OP_ACCEPT);
+        } catch (IOException e) {
+            serverChannel.close();
+            throw e;
+        }
+    }
+
+    /**
+     * Starts the selector thread and the worker threads.
+     *
+     * @param workersNum    The amount of worker threads.
+     */
+    public synchronized void start(int workersNum) {
+        if (workersNum <= 0)
+            throw new IllegalArgumentException("Amount of workers must be positive instead of " + workersNum);
+        if (!threads.isEmpty())
+            throw new IllegalStateException("The server is already started.");
+
+        threads.add(new Thread(this::select, "recognition-selector"));
+        for (int w = 0; w < workersNum; w++)
+            threads.add(new Thread(this::work, "recognition-worker-" + w));
+        for (Thread thread : threads)
+            thread.start();
+    }
+
+    /**
+     * Returns the address the server listens on.
+     *
+     * @return the address of the server.
+     * @throws IOException if the server is closed.
+     */
+    public SocketAddress getLocalAddress() throws IOException {
+        return serverChannel.getLocalAddress();
+    }
+
+    /**
+     * Returns true until the server is closed or its selector fails.
+     * @return true if the server is serving requests.
+     */
+    public boolean isRunning() {
+        return running;
+    }
+
+    /**
+     * Returns the amount of answered requests.
+     * @return the amount of answered requests.
+     */
+    public long getRequests() {
+        return requestsNum.sum();
+    }
+
+    /**
+     * Returns the amount of recalled micro-batches.
+     * @return the amount of recalled micro-batches.
+     */
+    public long getBatches() {
+        return batchesNum.sum();
+    }
+
+    /**
+     * Returns the histogram of the amount of requests per micro-batch.
+     * @return the histogram of the batch sizes.
+     */
+    public Histogram getBatchSizes() {
+        return batchSizes;
+    }
+
+    /**
+     * Returns the histogram of the time from the arrival of a request until its response is
+     * queued for writing, in microseconds. The time the selector takes to write the response
+     * is not included; the round trip seen by a client is measured by the LoadGenerator.
+     * @return the histogram of the latencies.
+     */
+    public Histogram getLatencies() {
+        return latencies;
+    }
+
+    /**
+     * Stops the threads and closes all connections. Requests that were not answered are dropped.
+     * The server may already have been stopped by a failure of its selector.
+     *
+     * @throws IOException if the selector failed while the server was running, or the server channel cannot be closed.
+     */
+    @Override
+    public void close() throws IOException {
+        running = false;
+        selector.wakeup();
+        for (Thread thread : threads)
+            thread.interrupt();
+        for (Thread thread : threads) {
+            try {
+                thread.join();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                break;
+            }
+        }
+
+        release();
+        if (failure != null)
+            throw failure;
+    }
+
+    /**
+     * Closes all connections, the selector and the server channel, and removes the file of a
+     * Unix domain socket. Only the first call does anything.
+     *
+     * @throws IOException if the server channel cannot be closed.
+     */
+    private synchronized void release() throws IOException {
+        if (released)
+            return;
+        released = true;
+
+        for (Connection connection : connections) {
+            try {
+                connection.channel.close();
+            } catch (IOException ignored) {
+                // The connection is dropped anyway.
+            }
+        }
+        connections.clear();
+        selector.close();
+        serverChannel.close();
+        if (localAddress instanceof UnixDomainSocketAddress)
+            Files.deleteIfExists(((UnixDomainSocketAddress) localAddress).getPath());
+    }
+
+    /**
+     * Stops the server after the selector failed: reports the error, stops the workers, which
+     * would otherwise wait for requests forever, and closes all connections, so the clients
+     * notice at once. Called on the selector thread.
+     *
+     * @param e The error of the selector.
+     */
+    private void fail(IOException e) {
+        failure = e;
+        running = false;
+        System.err.println("Selector of the recognition server failed, stopping the server: " + e);
+        for (Thread thread : threads)
+            if (thread != Thread.currentThread())
+                thread.interrupt();
+
+        try {
+            release();
+        } catch (IOException closeError) {
+            e.addSuppressed(closeError);
+        }
+    }
+
+    /**
+     * The loop of the selector thread.
+     */
+    private void select() {
+        try {
+            while (running) {
+                selector.select();
+
+                Connection connection;
+                while ((connection = changed.poll()) != null)
+                    write(connection);
+                resumePaused();
+
+                Iterator<SelectionKey> keys = selector.selectedKeys().iterator();
+                while (keys.hasNext()) {
+                    SelectionKey key = keys.next();
+                    keys.remove();
+
+                    if (key.isValid() && key.isAcceptable()) {
+                        accept();
+                        continue;
+                    }
+                    connection = (Connection) key.attachment();
+                    if (key.isValid() && key.isReadable())
+                        read(connection);
+                    if (key.isValid() && key.isWritable())
+                        write(connection);
+                }
+            }
+        } catch (IOException e) {
+            if (running)
+                fail(e);
+        } catch (ClosedSelectorException e) {
+            if (running)
+                fail(new IOException("The selector was closed.", e));
+        }
+    }
+
+    /**
+     * Accepts a connection and sends it the hello.
+     *
+     * @throws IOException if the connection cannot be registered with the selector.
+     */
+    private void accept() throws IOException {
+        SocketChannel channel = serverChannel.accept();
+        if (channel == null)
+            return;
+
+        channel.configureBlocking(false);
+        if (channel.getLocalAddress() instanceof InetSocketAddress)
+            channel.setOption(StandardSocketOptions.TCP_NODELAY, true);
+
+        Connection connection = new Connection(channel, Math.max(READ_BUFFER_SIZE, Integer.BYTES + requestLength));
+        connections.add(connection);
+        connection.key = channel.register(selector, SelectionKey.OP_READ, connection);
+
+        ByteBuffer hello = ByteBuffer.allocate(RecognitionProtocol.HELLO_SIZE);
+        RecognitionProtocol.putHello(hello, model.getRowsNum(), model.getColsNum());
+        hello.flip();
+        connection.send(hello);
+        write(connection);
+    }
+
+    /**
+     * Reads what the connection has received and queues the complete requests.
+     *
+     * @param connection    The <strong>connection</strong> to read from.
+     */
+    private void read(Connection connection) {
+        try {
+            if (connection.channel.read(connection.input) < 0) {
+                close(connection);
+                return;
+            }
+        } catch (IOException e) {
+            close(connection);
+            return;
+        }
+        parse(connection);
+    }
+
+    /**
+     * Cuts the complete requests out of the received bytes of the connection and queues them,
+     * until the queue is full. A request that does not fit pauses the connection.
+     *
+     * @param connection    The <strong>connection</strong> whose bytes are parsed.
+     */
+    private void parse(Connection connection) {
+        ByteBuffer input = connection.input;
+        input.flip();
+        while (connection.pending == null && input.remaining() >= Integer.BYTES) {
+            if (input.getInt(input.position()) != requestLength) {
+                close(connection);
+                return;
+            }
+            if (input.remaining() < Integer.BYTES + requestLength)
+                break;
+
+            input.getInt();
+            long id = input.getLong();
+            Request request = new Request(connection, id, RecognitionProtocol.getPattern(input, size), System.nanoTime());
+            if (!requests.offer(request)) {
+                connection.pending = request;
+                paused.add(connection);
+                pausedNum.incrementAndGet();
+            }
+        }
+        input.compact();
+        updateInterest(connection);
+    }
+
+    /**
+     * Queues the waiting requests of the paused connections while there is room, and
+     * parses the rest of their received bytes.
+     */
+    private void resumePaused() {
+        Iterator<Connection> iterator = paused.iterator();
+        while (iterator.hasNext()) {
+            Connection connection = iterator.next();
+            if (!requests.offer(connection.pending))
+                return;
+
+            connection.pending = null;
+            iterator.remove();
+            pausedNum.decrementAndGet();
+            if (connection.key.isValid())
+                parse(connection);
+            iterator = paused.iterator();
+        }
+    }
+
+    /**
+     * Writes as much of the waiting responses of the connection as the socket takes.
+     *
+     * @param connection    The <strong>connection</strong> to write to.
+     */
+    private void write(Connection connection) {
+        if (!connection.key.isValid())
+            return;
+
+        try {
+            synchronized (connection) {
+                while (!connection.output.isEmpty()) {
+                    ByteBuffer buffer = connection.output.peek();
+                    connection.channel.write(buffer);
+                    if (buffer.hasRemaining())
+                        break;
+
+                    connection.outputBytes -= buffer.limit();
+                    connection.output.poll();
+                }
+            }
+        } catch (IOException e) {
+            close(connection);
+            return;
+        }
+        updateInterest(connection);
+    }
+
+    /**
+     * Reads from the connection only if it is not paused and its client keeps up with the
+     * responses, and writes to it only if it has responses waiting.
+     *
+     * @param connection    The <strong>connection</strong> to be updated.
+     */
+    private void updateInterest(Connection connection) {
+        if (!connection.key.isValid())
+            return;
+
+        int ops = 0;
+        synchronized (connection) {
+            if (connection.pending == null && connection.outputBytes < MAX_PENDING_OUTPUT)
+                ops |= SelectionKey.OP_READ;
+            if (!connection.output.isEmpty())
+                ops |= SelectionKey.OP_WRITE;
+        }
+        connection.key.interestOps(ops);
+    }
+
+    /**
+     * Closes the connection. Its requests that are already queued are recalled and dropped.
+     *
+     * @param connection    The <strong>connection</strong> to be closed.
+     */
+    private void close(Connection connection) {
+        connection.key.cancel();
+        connections.remove(connection);
+        if (paused.remove(connection))
+            pausedNum.decrementAndGet();
+        try {
+            connection.channel.close();
+        } catch (IOException ignored) {
+            // The connection is dropped anyway.
+        }
+    }
+
+    /**
+     * The loop of a worker thread: takes a micro-batch of requests, recalls it and hands
+     * the responses to the selector thread.
+     */
+    private void work() {
+        List<Request> batch = new ArrayList<>(maxBatchSize);
+        List<Letter> letters = new ArrayList<>(maxBatchSize);
+        int responseSize = Integer.BYTES + RecognitionProtocol.responseLength(size);
+
+        try {
+            while (running) {
+                Request first = requests.take();
+                batch.add(first);
+                requests.drainTo(batch, maxBatchSize - 1);
+
+                long deadline = first.arrivalNanos + maxDelayNanos;
+                while (batch.size() < maxBatchSize) {
+                    Request next = requests.poll(deadline - System.nanoTime(), TimeUnit.NANOSECONDS);
+                    if (next == null)
+                        break;
+                    batch.add(next);
+                    requests.drainTo(batch, maxBatchSize - batch.size());
+                }
+                if (pausedNum.get() > 0)
+                    selector.wakeup();
+
+                List<Letter> outputs;
+                try {
+                    for (Request request : batch)
+                        letters.add(new Letter(model.getRowsNum(), model.getColsNum(), request.pattern));
+                    outputs = model.predictBatch(letters, maxIterations);
+                } catch (RuntimeException e) {
+                    // A recall interrupted by close() ends the worker; any other failure is answered
+                    // with an error for every request of the batch, and the worker goes on.
+                    if (!running)
+                        return;
+                    System.err.println("Failed to recognize a batch of " + batch.size() + " requests: " + e);
+                    outputs = null;
+                }
+
+                long now = System.nanoTime();
+                for (int r = 0; r < batch.size(); r++) {
+                    Request request = batch.get(r);
+
+                    ByteBuffer response = ByteBuffer.allocate(responseSize);
+                    if (outputs == null) {
+                        RecognitionProtocol.putError(response, request.id, size);
+                    } else {
+                        Letter output = outputs.get(r);
+                        RecognitionProtocol.putResponse(response, request.id, (output != null) ? output.toPacked() : null,
+                                size);
+                    }
+                    response.flip();
+                    request.connection.send(response);
+                    changed.add(request.connection);
+                    latencies.record((int) Math.min(Integer.MAX_VALUE, (now - request.arrivalNanos) / 1000));
+                }
+                selector.wakeup();
+
+                requestsNum.add(batch.size());
+                batchesNum.increment();
+                batchSizes.record(batch.size());
+                batch.clear();
+                letters.clear();
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    @Override
+    public String toString() {
+        return "RecognitionServer{requests=" + getRequests() + ", batches=" + getBatches()
+                + ", meanBatch=" + batchSizes.mean() + ", p50Micros=" + latencies.quantile(0.5)
+                + ", p99Micros=" + latencies.quantile(0.99) + "}";
+    }
+
+    /**
+     * Loads the model and runs the server until the process is stopped.
+     *
+     * @param args  The options, see the class description.
+     * @throws IOException if the model cannot be loaded or the address cannot be bound.
+     */
+    public static void main(String[] args) throws IOException {
+        Path modelPath = null;
+        String host = "127.0.0.1";
+        int port = 7070;
+        Path unixPath = null;
+        int maxBatchSize = 64;
+        long delayMicros = 200;
+        int queueCapacity = 4096;
+        int workersNum = Runtime.getRuntime().availableProcessors();
+        int maxIterations = 100;
+
+        for (int i = 0; i < args.length; i++) {
+            switch (args[i]) {
+                case "--model":
+                    modelPath = Paths.get(args[++i]);
+                    break;
+                case "--host":
+                    host = args[++i];
+                    break;
+                case "--port":
+                    port = Integer.parseInt(args[++i]);
+                    break;
+                case "--unix":
+                    unixPath = Paths.get(args[++i]);
+                    break;
+                case "--batch":
+                    maxBatchSize = Integer.parseInt(args[++i]);
+                    break;
+                case "--delay-us":
+                    delayMicros = Long.parseLong(args[++i]);
+                    break;
+                case "--queue":
+                    queueCapacity = Integer.parseInt(args[++i]);
+                    break;
+                case "--workers":
+                    workersNum = Integer.parseInt(args[++i]);
+                    break;
+                case "--max-iterations":
+                    maxIterations = Integer.parseInt(args[++i]);
+                    break;
+                default:
+                    System.err.println("Unknown option: " + args[i]);
+                    System.exit(2);
+            }
+        }
+
+        if (modelPath == null) {
+            System.err.println("Usage: RecognitionServer --model model.hnn [--host 127.0.0.1] [--port 7070 | --unix path]"
+                    + " [--batch 64] [--delay-us 200] [--queue 4096] [--workers N] [--max-iterations 100]");
+            System.exit(2);
+        }
+
+        SocketAddress address = (unixPath != null) ? UnixDomainSocketAddress.of(unixPath) : new InetSocketAddress(host, port);
+        RecognitionServer server = new RecognitionServer(ModelFile.load(modelPath), address, maxBatchSize,
+                TimeUnit.MICROSECONDS.toNanos(delayMicros), queueCapacity, maxIterations);
+        Runtime.getRuntime().addShutdownHook(new Thread(() -> {
+            try {
+                server.close();
+            } catch (IOException e) {
+                System.err.println("Cannot close the server: " + e.getMessage());
+            }
+            System.err.println(server);
+        }));
+
+        server.start(workersNum);
+        System.err.println("Listening on " + server.getLocalAddress());
+    }
+
+    /**
+     * A request received from a connection.
+     */
+    private static final class Request {
+        /** The <strong>connection</strong> the request came from. */
+        final Connection connection;
+        /** The <strong>id</strong> the client gave the request. */
+        final long id;
+        /** The input <strong>pattern</strong>. */
+        final PackedPattern pattern;
+        /** The value of System.nanoTime() when the request was received. */
+        final long arrivalNanos;
+
+        Request(Connection connection, long id, PackedPattern pattern, long arrivalNanos) {
+            this.connection = connection;
+            this.id = id;
+            this.pattern = pattern;
+            this.arrivalNanos = arrivalNanos;
+        }
+    }
+
+    /**
+     * A connection of a client. The input and the pending request belong to the selector
+     * thread; the responses waiting to be written are guarded by the lock of the connection.
+     */
+    private static final class Connection {
+        /** The <strong>channel</strong> of the connection. */
+        final SocketChannel channel;
+        /** The received bytes that are not parsed yet, in write mode. */
+        final ByteBuffer input;
+        /** The responses waiting to be written. */
+        final ArrayDeque<ByteBuffer> output = new ArrayDeque<>();
+        /** The amount of bytes of the waiting responses. */
+        long outputBytes;
+        /** The request that did not fit into the queue, or null. */
+        Request pending;
+        /** The selection key of the channel. */
+        SelectionKey key;
+
+        Connection(SocketChannel channel, int bufferSize) {
+            this.channel = channel;
+            this.input = ByteBuffer.allocate(bufferSize);
+        }
+
+        /**
+         * Adds a response to the ones waiting to be written.
+         *
+         * @param response  The <strong>response</strong> frame, ready to be read.
+         */
+        synchronized void send(ByteBuffer response) {
+            output.add(response);
+            outputBytes += response.limit();
+        }
+    }
+}